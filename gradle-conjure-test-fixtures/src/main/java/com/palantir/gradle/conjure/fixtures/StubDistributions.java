@@ -0,0 +1,189 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure.fixtures;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+/**
+ * Writes a local Maven repository with stand-ins for the Conjure compiler and generators, so that builds using the
+ * plugin can be tested and measured offline, without the cost of the real tools and with controlled latency.
+ *
+ * <p>Each distribution is a gzipped tar with a single root directory containing a shell script under {@code bin/},
+ * like the real distributions. After the configured delay, the stub compiler writes an IR which only depends on the
+ * contents of the definitions, and the stub generators copy the IR into a single file in their output directory, so
+ * all outputs are deterministic. The archives themselves are byte-for-byte reproducible.
+ *
+ * <p>If an {@link Builder#invocationLog(File) invocation log} is configured, every call appends a {@code start} line
+ * before doing any work and an {@code end} line once done, so tests can tell how many calls overlapped.
+ */
+public final class StubDistributions {
+    public static final String VERSION = "0.0.0";
+
+    private static final Map<String, String> GENERATORS = ImmutableMap.of(
+            "com.palantir.conjure.java", "conjure-java",
+            "com.palantir.conjure.typescript", "conjure-typescript",
+            "com.palantir.conjure.python", "conjure-python");
+
+    private final Duration compilerDelay;
+    private final Duration generatorDelay;
+    private final Optional<File> invocationLog;
+
+    private StubDistributions(Duration compilerDelay, Duration generatorDelay, Optional<File> invocationLog) {
+        this.compilerDelay = compilerDelay;
+        this.generatorDelay = generatorDelay;
+        this.invocationLog = invocationLog;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Writes every stub distribution at {@link #VERSION} into the Maven repository at {@code repository}. Builds
+     * resolve them by adding the repository and forcing the version of the {@code com.palantir.conjure} dependencies.
+     */
+    public void writeRepository(File repository) throws IOException {
+        writeDistribution(publish(repository, "com.palantir.conjure", "conjure", VERSION, "tgz"),
+                "conjure-" + VERSION, "conjure", compilerDelay);
+        for (Map.Entry<String, String> generator : GENERATORS.entrySet()) {
+            String name = generator.getValue();
+            writeDistribution(publish(repository, generator.getKey(), name, VERSION, "tgz"),
+                    name + "-" + VERSION, name, generatorDelay);
+        }
+    }
+
+    /**
+     * Publishes an IR file with the given coordinates, as a dependency of {@code conjure-local}. Publishing it again
+     * with a different {@code content} simulates a change to the remote API.
+     */
+    public static void publishIr(File repository, String group, String name, String version, String content)
+            throws IOException {
+        Path artifact = publish(repository, group, name, version, "json");
+        String ir = String.format("{\"version\":1,\"name\":\"%s\",\"content\":\"%s\"}%n", name, content);
+        Files.write(artifact, ir.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Writes a POM with the given packaging, returning the path the artifact must be written to. */
+    private static Path publish(File repository, String group, String name, String version, String packaging)
+            throws IOException {
+        Path directory = repository.toPath().resolve(group.replace('.', '/')).resolve(name).resolve(version);
+        Files.createDirectories(directory);
+        String pom = String.join("\n",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+                "  <modelVersion>4.0.0</modelVersion>",
+                "  <groupId>" + group + "</groupId>",
+                "  <artifactId>" + name + "</artifactId>",
+                "  <version>" + version + "</version>",
+                "  <packaging>" + packaging + "</packaging>",
+                "</project>",
+                "");
+        Files.write(directory.resolve(name + "-" + version + ".pom"), pom.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name + "-" + version + "." + packaging);
+    }
+
+    private void writeDistribution(Path archive, String rootDirectory, String executableName, Duration delay)
+            throws IOException {
+        byte[] script = script(delay).getBytes(StandardCharsets.UTF_8);
+        try (OutputStream output = Files.newOutputStream(archive);
+                TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(output))) {
+            TarArchiveEntry entry = new TarArchiveEntry(rootDirectory + "/bin/" + executableName);
+            entry.setMode(0755);
+            entry.setModTime(new Date(0));
+            entry.setSize(script.length);
+            tar.putArchiveEntry(entry);
+            tar.write(script);
+            tar.closeArchiveEntry();
+        }
+    }
+
+    private String script(Duration delay) {
+        String sleep = delay.isZero()
+                ? ""
+                : String.format(Locale.ROOT, "sleep %.3f", delay.toMillis() / 1000.0);
+        String log = invocationLog.map(file -> " >> '" + file.getAbsolutePath() + "'").orElse(null);
+        return String.join("\n",
+                "#!/bin/sh",
+                "set -e",
+                log == null ? "" : "echo \"start $1 $2\"" + log,
+                sleep,
+                "case \"$1\" in",
+                "  compile)",
+                "    mkdir -p \"$(dirname \"$3\")\"",
+                "    checksum=$(find \"$2\" -name '*.yml' | sort | xargs cat | cksum | cut -d ' ' -f 1)",
+                "    printf '{\"version\":1,\"definitions\":\"%s\"}\\n' \"$checksum\" > \"$3\"",
+                "    ;;",
+                "  generate)",
+                "    mkdir -p \"$3\"",
+                "    cp \"$2\" \"$3/$(basename \"$2\" .json).generated\"",
+                "    ;;",
+                "  *)",
+                "    echo \"Unknown command $1\" >&2",
+                "    exit 1",
+                "    ;;",
+                "esac",
+                log == null ? "" : "echo \"end $1 $2\"" + log,
+                "");
+    }
+
+    public static final class Builder {
+        private Duration compilerDelay = Duration.ZERO;
+        private Duration generatorDelay = Duration.ZERO;
+        private Optional<File> invocationLog = Optional.empty();
+
+        private Builder() { }
+
+        /** How long the stub compiler takes for each {@code compile} call. */
+        public Builder compilerDelay(Duration delay) {
+            Preconditions.checkArgument(!delay.isNegative(), "delay must not be negative: %s", delay);
+            this.compilerDelay = delay;
+            return this;
+        }
+
+        /** How long each stub generator takes for each {@code generate} call. */
+        public Builder generatorDelay(Duration delay) {
+            Preconditions.checkArgument(!delay.isNegative(), "delay must not be negative: %s", delay);
+            this.generatorDelay = delay;
+            return this;
+        }
+
+        /** A file which every call of the stub compiler and generators appends its start and end to. */
+        public Builder invocationLog(File log) {
+            this.invocationLog = Optional.of(log);
+            return this;
+        }
+
+        public StubDistributions build() {
+            return new StubDistributions(compilerDelay, generatorDelay, invocationLog);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure.fixtures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StubDistributionsTest {
+    private static final String GENERATOR = "com/palantir/conjure/java/conjure-java/0.0.0/conjure-java-0.0.0";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDistributionLayout() throws IOException {
+        File repository = temporaryFolder.newFolder();
+        StubDistributions.builder().build().writeRepository(repository);
+
+        assertThat(new File(repository, GENERATOR + ".pom")).hasContent(String.join("\n",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+                "  <modelVersion>4.0.0</modelVersion>",
+                "  <groupId>com.palantir.conjure.java</groupId>",
+                "  <artifactId>conjure-java</artifactId>",
+                "  <version>0.0.0</version>",
+                "  <packaging>tgz</packaging>",
+                "</project>"));
+        try (TarArchiveInputStream tar = open(new File(repository, GENERATOR + ".tgz").toPath())) {
+            TarArchiveEntry entry = tar.getNextTarEntry();
+            assertThat(entry.getName()).isEqualTo("conjure-java-0.0.0/bin/conjure-java");
+            assertThat(entry.getMode() & 0777).isEqualTo(0755);
+            assertThat(new String(IOUtils.toByteArray(tar), StandardCharsets.UTF_8))
+                    .startsWith("#!/bin/sh")
+                    .doesNotContain("sleep");
+            assertThat(tar.getNextTarEntry()).isNull();
+        }
+        assertThat(new File(repository, "com/palantir/conjure/conjure/0.0.0/conjure-0.0.0.tgz")).isFile();
+        assertThat(new File(repository, "com/palantir/conjure/typescript/conjure-typescript/0.0.0")).isDirectory();
+        assertThat(new File(repository, "com/palantir/conjure/python/conjure-python/0.0.0")).isDirectory();
+    }
+
+    @Test
+    public void testDelays() throws IOException {
+        File repository = temporaryFolder.newFolder();
+        StubDistributions.builder()
+                .compilerDelay(Duration.ofMillis(1500))
+                .generatorDelay(Duration.ofMillis(20))
+                .build()
+                .writeRepository(repository);
+
+        assertThat(script(repository, "com/palantir/conjure/conjure/0.0.0/conjure-0.0.0.tgz")).contains("sleep 1.500");
+        assertThat(script(repository, GENERATOR + ".tgz")).contains("sleep 0.020");
+    }
+
+    @Test
+    public void testNegativeDelay() {
+        assertThatThrownBy(() -> StubDistributions.builder().generatorDelay(Duration.ofSeconds(-1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("delay must not be negative: PT-1S");
+    }
+
+    @Test
+    public void testInvocationLog() throws IOException, InterruptedException {
+        File repository = temporaryFolder.newFolder();
+        File log = new File(temporaryFolder.getRoot(), "invocations.log");
+        StubDistributions.builder().invocationLog(log).build().writeRepository(repository);
+
+        File executable = temporaryFolder.newFile();
+        Files.write(executable.toPath(), script(repository, GENERATOR + ".tgz").getBytes(StandardCharsets.UTF_8));
+        assertThat(executable.setExecutable(true)).isTrue();
+        File ir = temporaryFolder.newFile("api-1.0.0.json");
+        File output = new File(temporaryFolder.getRoot(), "output");
+        Process process = new ProcessBuilder(
+                executable.getAbsolutePath(), "generate", ir.getAbsolutePath(), output.getAbsolutePath()).start();
+
+        assertThat(process.waitFor()).isZero();
+        assertThat(new File(output, "api-1.0.0.generated")).isFile();
+        assertThat(Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)).containsExactly(
+                "start generate " + ir.getAbsolutePath(),
+                "end generate " + ir.getAbsolutePath());
+    }
+
+    @Test
+    public void testReproducible() throws IOException {
+        File first = temporaryFolder.newFolder();
+        File second = temporaryFolder.newFolder();
+        StubDistributions.builder().build().writeRepository(first);
+        StubDistributions.builder().build().writeRepository(second);
+
+        assertThat(Files.readAllBytes(new File(first, GENERATOR + ".tgz").toPath()))
+                .isEqualTo(Files.readAllBytes(new File(second, GENERATOR + ".tgz").toPath()));
+    }
+
+    @Test
+    public void testPublishIr() throws IOException {
+        File repository = temporaryFolder.newFolder();
+        StubDistributions.publishIr(repository, "com.palantir.test", "api", "1.0.0", "edit");
+
+        assertThat(new File(repository, "com/palantir/test/api/1.0.0/api-1.0.0.json"))
+                .hasContent("{\"version\":1,\"name\":\"api\",\"content\":\"edit\"}");
+        assertThat(new String(Files.readAllBytes(repository.toPath().resolve(
+                "com/palantir/test/api/1.0.0/api-1.0.0.pom")), StandardCharsets.UTF_8))
+                .contains("<packaging>json</packaging>");
+    }
+
+    private static String script(File repository, String archive) throws IOException {
+        try (TarArchiveInputStream tar = open(new File(repository, archive).toPath())) {
+            tar.getNextTarEntry();
+            return new String(IOUtils.toByteArray(tar), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static TarArchiveInputStream open(Path archive) throws IOException {
+        InputStream input = Files.newInputStream(archive);
+        return new TarArchiveInputStream(new GzipCompressorInputStream(input));
+    }
+}
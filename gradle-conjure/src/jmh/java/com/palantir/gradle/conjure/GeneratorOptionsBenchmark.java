@@ -0,0 +1,84 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.gradle.conjure.api.GeneratorOptions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rendering, fingerprinting and copying of generator options, which happens for every generator task and every
+ * source file it generates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeneratorOptionsBenchmark {
+
+    @Param({"2", "20"})
+    public int optionCount;
+
+    private GeneratorOptions options;
+    private Map<String, Supplier<Object>> requiredOptions;
+
+    @Setup
+    public void setup() {
+        options = new GeneratorOptions();
+        for (int i = 0; i < optionCount; i++) {
+            if (i % 2 == 0) {
+                options.addFlag("flag" + i);
+            } else {
+                options.setProperty("option" + i, "value" + i);
+            }
+        }
+        // One required option which is already defined and one which falls back to its default
+        requiredOptions = ImmutableMap.of(
+                "option1", () -> "default",
+                "packageName", () -> "conjure-api");
+    }
+
+    @Benchmark
+    public List<String> toArgs() {
+        return RenderGeneratorOptions.toArgs(options, requiredOptions);
+    }
+
+    @Benchmark
+    public List<String> toCanonicalArgs() {
+        return RenderGeneratorOptions.toCanonicalArgs(options);
+    }
+
+    @Benchmark
+    public GeneratorOptions copy() {
+        return new GeneratorOptions(options);
+    }
+
+    @Benchmark
+    public GeneratorOptions copyAndAddFlag() {
+        return new GeneratorOptions(options).addFlag("objects");
+    }
+}
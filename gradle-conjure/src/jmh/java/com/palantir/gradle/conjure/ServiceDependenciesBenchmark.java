@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.palantir.gradle.conjure.api.ServiceDependency;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Rendering of the service dependencies which are embedded into every generated package. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceDependenciesBenchmark {
+
+    @Param({"1", "10"})
+    public int dependencyCount;
+
+    private Set<ServiceDependency> dependencies;
+
+    @Setup
+    public void setup() {
+        dependencies = new HashSet<>();
+        for (int i = 0; i < dependencyCount; i++) {
+            ServiceDependency dependency = new ServiceDependency();
+            dependency.setProductGroup("com.palantir.group" + i);
+            dependency.setProductName("product-" + i);
+            dependency.setMinimumVersion("1." + i + ".0");
+            dependency.setMaximumVersion("1.x.x");
+            dependency.setRecommendedVersion("1." + i + ".2");
+            dependencies.add(dependency);
+        }
+    }
+
+    @Benchmark
+    public byte[] render() throws JsonProcessingException {
+        return GenerateConjureServiceDependenciesTask.jsonMapper.writeValueAsBytes(dependencies);
+    }
+}
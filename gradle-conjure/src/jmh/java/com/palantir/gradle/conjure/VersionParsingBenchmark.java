@@ -0,0 +1,59 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Parsing of the product names and versions which are passed to every generator invocation. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VersionParsingBenchmark {
+
+    /** Versions in IR file names, which can't be dirty or have a commit distance. */
+    @State(Scope.Benchmark)
+    public static class IrFileVersion {
+        @Param({"1.2.3", "1.2.3-rc4", "1.2.3-rc4-gabcdef0"})
+        public String irFileVersion;
+    }
+
+    /** Project versions, which may also be dirty snapshot versions described by git. */
+    @State(Scope.Benchmark)
+    public static class ProjectVersion {
+        @Param({"1.2.3", "1.2.3-rc4", "1.2.3-rc4-5-gabcdef0.dirty"})
+        public String projectVersion;
+    }
+
+    @Benchmark
+    public Map<String, Supplier<Object>> resolveProductMetadata(IrFileVersion version) {
+        return ConjureLocalGenerateGenericTask.resolveProductMetadata(
+                "conjure-api-" + version.irFileVersion + ".conjure.json");
+    }
+
+    @Benchmark
+    public String formatPythonVersion(ProjectVersion version) {
+        return CompileConjurePythonTask.formatPythonVersion(version.projectVersion);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.util.GFileUtils;
+import org.gradle.workers.IsolationMode;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Builds a source distribution and a universal wheel of a generated Python package.
+ *
+ * <p>The two distributions are built by separate {@code setup.py} processes which run concurrently, each with its own
+ * build and egg-info directories so that they don't interfere with each other.
+ */
+@CacheableTask
+public class BuildWheelTask extends DefaultTask {
+    private File packageDirectory;
+    private File buildDirectory;
+    private final FileTree sources;
+    private final Provider<ProcessMetricsReporter> processMetrics = ConjureMetrics.processReporter(this);
+
+    public BuildWheelTask() {
+        this.sources = getProject().fileTree((Callable<File>) this::getPackageDirectory)
+                .matching(patterns -> patterns.exclude(
+                        "build/**", "dist/**", "*.egg-info/**", "**/__pycache__/**", "**/*.pyc"));
+    }
+
+    @Inject
+    protected WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** The directory containing {@code setup.py}. */
+    @Internal
+    public final File getPackageDirectory() {
+        return packageDirectory;
+    }
+
+    public final void setPackageDirectory(File packageDirectory) {
+        this.packageDirectory = packageDirectory;
+    }
+
+    /** The files in the {@link #getPackageDirectory() package directory}, excluding setuptools' build products. */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final FileTree getSources() {
+        return sources;
+    }
+
+    /** Scratch space for setuptools; the distributions are written to {@link #getDistDirectory()}. */
+    @Internal
+    public final File getBuildDirectory() {
+        return buildDirectory;
+    }
+
+    public final void setBuildDirectory(File buildDirectory) {
+        this.buildDirectory = buildDirectory;
+    }
+
+    @OutputDirectory
+    public final File getDistDirectory() {
+        return new File(getBuildDirectory(), "dist");
+    }
+
+    @TaskAction
+    public final void buildDistributions() {
+        // Distributions of previous versions must not be cached or published alongside the current ones
+        GFileUtils.deleteDirectory(getDistDirectory());
+        GFileUtils.mkdirs(getDistDirectory());
+
+        File sdistBase = new File(getBuildDirectory(), "sdist");
+        File wheelBase = new File(getBuildDirectory(), "wheel");
+        GFileUtils.mkdirs(sdistBase);
+        GFileUtils.mkdirs(wheelBase);
+        String distDirectory = getDistDirectory().getAbsolutePath();
+
+        submit("Building Python source distribution", ImmutableList.of(
+                "python", "setup.py",
+                "egg_info", "--egg-base", sdistBase.getAbsolutePath(),
+                "sdist", "--dist-dir", distDirectory));
+        submit("Building Python wheel", ImmutableList.of(
+                "python", "setup.py",
+                "build", "--build-base", wheelBase.getAbsolutePath(),
+                "egg_info", "--egg-base", wheelBase.getAbsolutePath(),
+                "bdist_wheel", "--universal", "--dist-dir", distDirectory));
+    }
+
+    private void submit(String displayName, List<String> commandLine) {
+        getLogger().info("Running setup.py with args: {}", commandLine);
+        getWorkerExecutor().submit(ExecWorker.class, config -> {
+            config.setIsolationMode(IsolationMode.NONE);
+            config.setDisplayName(displayName);
+            config.setParams(commandLine, getPackageDirectory(), processMetrics.get());
+        });
+    }
+}
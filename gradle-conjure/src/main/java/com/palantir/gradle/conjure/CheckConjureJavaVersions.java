@@ -18,35 +18,43 @@ package com.palantir.gradle.conjure;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.MoreCollectors;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.result.ResolutionResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.tasks.TaskAction;
 
 public class CheckConjureJavaVersions extends DefaultTask {
+    private Configuration conjureJavaConfiguration;
+    private final List<Configuration> conjureJavaLibConfigurations = new ArrayList<>();
 
     public CheckConjureJavaVersions() {
         setGroup(ConjurePlugin.TASK_GROUP);
         setDescription("Ensures that conjure-java and conjure-lib versions are identical");
     }
 
+    /** The configuration containing the conjure-java generator. */
+    final void setConjureJavaConfiguration(Configuration conjureJavaConfiguration) {
+        this.conjureJavaConfiguration = conjureJavaConfiguration;
+    }
+
+    /** Adds the {@code compile} configuration of a Java subproject, which must contain conjure-lib. */
+    final void addConjureJavaLibConfiguration(Configuration conjureJavaLibConfiguration) {
+        this.conjureJavaLibConfigurations.add(conjureJavaLibConfiguration);
+    }
+
     @TaskAction
     public final void run() {
         // 1. Figure out what version of conjure-java we resolved
-        String conjureJavaVersion = findResolvedVersionOf(
-                getProject(), ConjurePlugin.CONJURE_JAVA, ConjurePlugin.CONJURE_JAVA_BINARY);
+        String conjureJavaVersion = findResolvedVersionOf(conjureJavaConfiguration, ConjurePlugin.CONJURE_JAVA_BINARY);
 
         // 2. Ensure in each subproject, the version of conjure-lib in `compile` is the same.
-        ConjurePlugin.JAVA_PROJECT_SUFFIXES.stream()
-                .map(suffix -> getProject().findProject(getProject().getName() + suffix))
-                .filter(Objects::nonNull)
-                .forEach(subproj -> {
+        conjureJavaLibConfigurations.forEach(configuration -> {
                     String conjureJavaLibVersion =
-                            findResolvedVersionOf(
-                                    subproj, "compile", ConjurePlugin.CONJURE_JAVA_LIB_DEP);
+                            findResolvedVersionOf(configuration, ConjurePlugin.CONJURE_JAVA_LIB_DEP);
                     Preconditions.checkState(conjureJavaLibVersion.equals(conjureJavaVersion),
                             "conjure-java generator and lib should have the same version but found:\n"
                                     + "%s -> %s\n%s -> %s",
@@ -56,9 +64,8 @@ public class CheckConjureJavaVersions extends DefaultTask {
                 });
     }
 
-    private static String findResolvedVersionOf(Project project, String configuration, String moduleId) {
-        ResolutionResult conjureJavaResolutionResult =
-                project.getConfigurations().getByName(configuration).getIncoming().getResolutionResult();
+    private static String findResolvedVersionOf(Configuration configuration, String moduleId) {
+        ResolutionResult conjureJavaResolutionResult = configuration.getIncoming().getResolutionResult();
         Optional<ResolvedComponentResult> component = conjureJavaResolutionResult
                 .getAllComponents()
                 .stream()
@@ -67,7 +74,8 @@ public class CheckConjureJavaVersions extends DefaultTask {
                 .collect(MoreCollectors.toOptional());
         return component
                 .orElseThrow(() ->
-                        new RuntimeException(String.format("Expected to find %s in %s", moduleId, configuration)))
+                        new RuntimeException(String.format(
+                                "Expected to find %s in %s", moduleId, configuration.getName())))
                 .getModuleVersion()
                 .getVersion();
     }
@@ -0,0 +1,35 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.util.GFileUtils;
+
+/**
+ * Runs conjure-java once with every enabled generator flag, writing all generated sources into a single staging
+ * directory which {@link RouteConjureJavaSourcesTask} then splits between the Java subprojects.
+ */
+@CacheableTask
+public class CompileConjureJavaTask extends ConjureGeneratorTask {
+
+    @Override
+    protected final void prepareForFullGeneration() {
+        // Everything in the staging directory gets routed somewhere, so stale files must not survive
+        GFileUtils.deleteDirectory(getOutputDirectory());
+        GFileUtils.mkdirs(getOutputDirectory());
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.util.Map;
@@ -24,9 +25,21 @@ import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 
+@CacheableTask
 public class CompileConjurePythonTask extends ConjureGeneratorTask {
+    private final Property<String> projectName = getProject().getObjects().property(String.class);
+    private final Property<String> projectVersion = getProject().getObjects().property(String.class);
+
+    public CompileConjurePythonTask() {
+        Project project = getProject();
+        projectName.set(project.getName());
+        projectVersion.set(project.provider(() -> project.getVersion().toString()));
+    }
 
     @Override
     protected final Map<String, Supplier<Object>> requiredOptions(File file) {
@@ -44,15 +57,16 @@ public class CompileConjurePythonTask extends ConjureGeneratorTask {
 
     @Input
     public final String getProjectName() {
-        return getProject().getName();
+        return projectName.get();
     }
 
     @Input
     public final String getPackageVersion() {
-        return formatPythonVersion(getProject().getVersion().toString());
+        return formatPythonVersion(projectVersion.get());
     }
 
-    private static String formatPythonVersion(String stringVersion) {
+    @VisibleForTesting
+    static String formatPythonVersion(String stringVersion) {
         if (stringVersion.equals("unspecified")) {
             return stringVersion;
         }
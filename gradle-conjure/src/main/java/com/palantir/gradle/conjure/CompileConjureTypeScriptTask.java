@@ -20,15 +20,35 @@ import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.util.Map;
 import java.util.function.Supplier;
-import org.gradle.api.file.ConfigurableFileTree;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.util.GFileUtils;
 
+/**
+ * Generates a TypeScript package, including its {@code package.json}. The package is generated under the build
+ * directory and then copied into the TypeScript project by a {@link SyncConjureTypeScriptTask}, because that is where
+ * npm installs {@code node_modules} and tsc writes the compiled JavaScript: sharing a directory with those would stop
+ * this task from being up to date or loaded from the build cache.
+ */
+@CacheableTask
 public class CompileConjureTypeScriptTask extends ConjureGeneratorTask {
-
     private File productDependencyFile;
+    private final Property<String> packageName = getProject().getObjects().property(String.class);
+    private final Property<String> projectVersion = getProject().getObjects().property(String.class);
+
+    public CompileConjureTypeScriptTask() {
+        Project project = getProject();
+        packageName.set(project.getName());
+        projectVersion.set(project.provider(() -> project.getVersion().toString()));
+    }
 
     @InputFile
+    @PathSensitive(PathSensitivity.NONE)
     public final File getProductDependencyFile() {
         return productDependencyFile;
     }
@@ -37,12 +57,11 @@ public class CompileConjureTypeScriptTask extends ConjureGeneratorTask {
         this.productDependencyFile = productDependencyFile;
     }
 
-    public CompileConjureTypeScriptTask() {
-        doFirst(task -> {
-            ConfigurableFileTree fileTree = task.getProject().fileTree(getOutputDirectory());
-            fileTree.exclude("node_modules/**/*");
-            fileTree.forEach(File::delete);
-        });
+    @Override
+    protected final void prepareForFullGeneration() {
+        // Everything in the output directory is copied into the package, so stale files must not survive
+        GFileUtils.deleteDirectory(getOutputDirectory());
+        GFileUtils.mkdirs(getOutputDirectory());
     }
 
     @Override
@@ -54,12 +73,12 @@ public class CompileConjureTypeScriptTask extends ConjureGeneratorTask {
     }
 
     @Input
-    private String getPackageName() {
-        return getProject().getName();
+    public final String getPackageName() {
+        return packageName.get();
     }
 
     @Input
-    private String getProjectVersion() {
-        return getProject().getVersion().toString();
+    public final String getProjectVersion() {
+        return projectVersion.get();
     }
 }
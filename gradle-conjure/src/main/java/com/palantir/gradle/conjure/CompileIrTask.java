@@ -16,21 +16,63 @@
 
 package com.palantir.gradle.conjure;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.function.Supplier;
+import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
-import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
 
+@CacheableTask
 public class CompileIrTask extends DefaultTask {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String SOURCE_FILE_HASHES = "source-file-hashes.json";
+    private static final long RACY_MODIFICATION_MILLIS = 2000;
 
     private File outputFile;
     private Supplier<File> inputDirectory;
     private Supplier<File> executablePath;
+    private boolean useGeneratorDaemon;
+    private final FileTree sourceFiles;
+    private final String limitKey;
+    private final Provider<ProcessMetricsReporter> processMetrics;
+    private SortedMap<String, String> sourceFileHashes;
+
+    public CompileIrTask() {
+        this.useGeneratorDaemon = ConjureGeneratorWorkers.isGeneratorDaemonEnabled(getProject());
+        this.limitKey = ConjureGeneratorLimit.keyFor(getProject());
+        this.processMetrics = ConjureMetrics.processReporter(this);
+        this.sourceFiles = getProject().fileTree((Callable<File>) this::getInputDirectory)
+                .matching(patterns -> patterns.include("**/*.yml"));
+    }
+
+    @Inject
+    protected WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
 
     public final void setOutputFile(File outputFile) {
         this.outputFile = outputFile;
@@ -45,33 +87,160 @@ public class CompileIrTask extends DefaultTask {
         return outputFile;
     }
 
-    @InputDirectory
+    @Internal
     public final File getInputDirectory() {
         return inputDirectory.get();
     }
 
+    /** The Conjure definitions in the {@link #getInputDirectory() input directory}. */
+    @Internal
+    public final FileTree getSourceFiles() {
+        return sourceFiles;
+    }
+
+    /**
+     * The relative path of each of the {@link #getSourceFiles() source files} mapped to a hash of its content with
+     * line endings normalized, so that neither stray files nor CRLF conversions cause the IR to be recompiled.
+     *
+     * <p>Unlike Gradle's own file hashes these aren't cached by Gradle, so they are computed at most once per build and
+     * remembered between builds in the task's temporary directory along with the size and modification time of each
+     * file. Only files whose size or modification time changed since are read and hashed again.
+     */
+    @Input
+    public final SortedMap<String, String> getSourceFileHashes() {
+        if (sourceFileHashes == null) {
+            sourceFileHashes = hashSourceFiles();
+        }
+        return sourceFileHashes;
+    }
+
+    private SortedMap<String, String> hashSourceFiles() {
+        File hashesFile = new File(getTemporaryDir(), SOURCE_FILE_HASHES);
+        JsonNode previous = readSourceFileHashes(hashesFile);
+        // Files modified this recently may still change without changing their modification time
+        long racyTimestamp = System.currentTimeMillis() - RACY_MODIFICATION_MILLIS;
+
+        SortedMap<String, String> hashes = new TreeMap<>();
+        ObjectNode remembered = OBJECT_MAPPER.createObjectNode();
+        getSourceFiles().visit(details -> {
+            if (details.isDirectory()) {
+                return;
+            }
+            String path = details.getRelativePath().getPathString();
+            File file = details.getFile();
+            long size = file.length();
+            long lastModified = file.lastModified();
+            JsonNode entry = previous.path(path);
+            String hash = entry.path("size").asLong(-1) == size && entry.path("lastModified").asLong(-1) == lastModified
+                    ? entry.path("hash").asText()
+                    : hashNormalizingLineEndings(file);
+            hashes.put(path, hash);
+            if (lastModified < racyTimestamp) {
+                remembered.putObject(path).put("size", size).put("lastModified", lastModified).put("hash", hash);
+            }
+        });
+
+        try {
+            OBJECT_MAPPER.writeValue(hashesFile, remembered);
+        } catch (IOException e) {
+            getLogger().info("Unable to remember source file hashes in {}", hashesFile, e);
+        }
+        return hashes;
+    }
+
+    private JsonNode readSourceFileHashes(File hashesFile) {
+        if (hashesFile.isFile()) {
+            try {
+                return OBJECT_MAPPER.readTree(hashesFile);
+            } catch (IOException e) {
+                getLogger().info("Ignoring unreadable source file hashes {}", hashesFile, e);
+            }
+        }
+        return OBJECT_MAPPER.createObjectNode();
+    }
+
     public final void setExecutablePath(Supplier<File> executablePath) {
         this.executablePath = executablePath;
     }
 
-    @InputFile
+    @Internal
     public final File getExecutablePath() {
         return executablePath.get();
     }
 
+    /**
+     * The extracted distribution containing the {@link #getExecutablePath() executable} under {@code bin/}, which
+     * identifies the compiler by content rather than by location.
+     */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final File getExecutableDistribution() {
+        return getExecutablePath().getParentFile().getParentFile();
+    }
+
+    /**
+     * Whether the compiler is called in-process in a reusable worker daemon instead of forked. Defaults to the
+     * {@value ConjureGeneratorWorkers#GENERATOR_DAEMON_PROPERTY} project property.
+     */
+    @Internal
+    public final boolean getUseGeneratorDaemon() {
+        return useGeneratorDaemon;
+    }
+
+    public final void setUseGeneratorDaemon(boolean useGeneratorDaemon) {
+        this.useGeneratorDaemon = useGeneratorDaemon;
+    }
+
+    /**
+     * Compiles the IR into a temporary file and only replaces the {@link #getOutputFile() output file} if the content
+     * differs, so that edits which do not change the API leave the IR untouched and the generators up to date.
+     */
     @TaskAction
-    public final void generate() {
-        getProject().exec(execSpec -> {
-            ImmutableList.Builder<String> commandArgsBuilder = ImmutableList.builder();
-            commandArgsBuilder.add(
-                    executablePath.get().getAbsolutePath(),
-                    "compile",
-                    inputDirectory.get().getAbsolutePath(),
-                    outputFile.getAbsolutePath());
-
-            List<String> args = commandArgsBuilder.build();
-            getLogger().info("Running compiler with args: {}", args);
-            execSpec.commandLine(args.toArray());
-        });
+    public final void generate() throws IOException {
+        File compiledFile = new File(getTemporaryDir(), outputFile.getName());
+        Files.deleteIfExists(compiledFile.toPath());
+
+        ImmutableList.Builder<String> commandArgsBuilder = ImmutableList.builder();
+        commandArgsBuilder.add(
+                executablePath.get().getAbsolutePath(),
+                "compile",
+                inputDirectory.get().getAbsolutePath(),
+                compiledFile.getAbsolutePath());
+
+        List<String> args = commandArgsBuilder.build();
+        getLogger().info("Running compiler with args: {}", args);
+        ConjureGeneratorWorkers.submit(
+                getWorkerExecutor(),
+                "Compiling Conjure IR",
+                executablePath.get(),
+                ImmutableList.of(args),
+                getUseGeneratorDaemon(),
+                limitKey,
+                processMetrics.get());
+        getWorkerExecutor().await();
+
+        if (outputFile.isFile() && com.google.common.io.Files.equal(compiledFile, outputFile)) {
+            getLogger().info("Compiled IR is identical to {}, leaving it unchanged", outputFile);
+            Files.delete(compiledFile.toPath());
+        } else {
+            Files.createDirectories(outputFile.getParentFile().toPath());
+            Files.move(compiledFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String hashNormalizingLineEndings(File file) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\r' || i + 1 >= bytes.length || bytes[i + 1] != '\n') {
+                hasher.putByte(bytes[i]);
+            }
+        }
+        return hasher.hash().toString();
     }
 }
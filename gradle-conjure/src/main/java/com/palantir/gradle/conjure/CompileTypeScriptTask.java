@@ -0,0 +1,232 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.util.GFileUtils;
+
+/**
+ * Compiles a generated TypeScript package into JavaScript by running its {@code build} script.
+ *
+ * <p>The outputs are the individual files tsc emits next to each source file, derived from the {@code declaration}
+ * and {@code sourceMap} compiler options in {@code tsconfig.json}. Unlike a single output directory these don't
+ * overlap with the sources, so the task can be cached. An {@code outDir} isn't supported, because
+ * {@link SyncConjureTypeScriptTask} only preserves compiled files next to their sources. With a compiler that supports
+ * it, tsc also runs in {@code --incremental} mode and only re-checks changed modules.
+ */
+@CacheableTask
+public class CompileTypeScriptTask extends DefaultTask {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(JsonParser.Feature.ALLOW_COMMENTS)
+            .enable(JsonParser.Feature.ALLOW_TRAILING_COMMA);
+    private static final Pattern MAJOR_MINOR_VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
+    private static final String SOURCE_SUFFIX = ".ts";
+    private static final String DECLARATION_SUFFIX = ".d.ts";
+
+    private File packageDirectory;
+    private File buildInfoFile;
+    private boolean incremental = true;
+    private final FileTree sources;
+    private final Provider<ProcessMetricsReporter> processMetrics = ConjureMetrics.processReporter(this);
+
+    public CompileTypeScriptTask() {
+        this.sources = getProject().fileTree((Callable<File>) this::getPackageDirectory)
+                .matching(patterns -> patterns
+                        .include("**/*" + SOURCE_SUFFIX)
+                        .exclude("**/*" + DECLARATION_SUFFIX, "node_modules/**"));
+    }
+
+    /** The directory containing {@code package.json} and {@code tsconfig.json}. */
+    @Internal
+    public final File getPackageDirectory() {
+        return packageDirectory;
+    }
+
+    public final void setPackageDirectory(File packageDirectory) {
+        this.packageDirectory = packageDirectory;
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final FileTree getSources() {
+        return sources;
+    }
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public final File getTsConfigFile() {
+        return new File(getPackageDirectory(), "tsconfig.json");
+    }
+
+    /**
+     * Identifies the installed {@code node_modules} by the dependencies declared in {@code package.json}, rather than
+     * by its contents or by the whole {@code package.json}, which contains the project version.
+     */
+    @Input
+    public final String getDependenciesHash() {
+        return InstallTypeScriptDependenciesTask.dependenciesHash(new File(getPackageDirectory(), "package.json"));
+    }
+
+    /**
+     * Whether tsc runs with {@code --incremental}, if the installed compiler supports it. Defaults to true.
+     */
+    @Input
+    public final boolean getIncremental() {
+        return incremental;
+    }
+
+    public final void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /** Where tsc records the state it needs to compile {@link #getIncremental() incrementally}. */
+    @OutputFile
+    public final File getBuildInfoFile() {
+        return buildInfoFile;
+    }
+
+    public final void setBuildInfoFile(File buildInfoFile) {
+        this.buildInfoFile = buildInfoFile;
+    }
+
+    /**
+     * The files tsc emits for the {@link #getSources() sources}, keyed by their path relative to the
+     * {@link #getPackageDirectory() package directory}.
+     */
+    @OutputFiles
+    public final Map<String, File> getCompiledFiles() {
+        JsonNode compilerOptions = readTsConfig().path("compilerOptions");
+        String outDir = compilerOptions.path("outDir").asText("");
+        if (!new File(getPackageDirectory(), outDir).toPath().normalize()
+                .equals(getPackageDirectory().toPath().normalize())) {
+            throw new InvalidUserDataException(String.format(
+                    "%s sets compilerOptions.outDir to '%s', but compiled files must be written next to their sources",
+                    getTsConfigFile(), outDir));
+        }
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(".js");
+        if (compilerOptions.path("declaration").asBoolean(false)) {
+            suffixes.add(DECLARATION_SUFFIX);
+        }
+        if (compilerOptions.path("sourceMap").asBoolean(false)) {
+            suffixes.add(".js.map");
+        }
+
+        Map<String, File> compiledFiles = new TreeMap<>();
+        getSources().visit(details -> {
+            if (!details.isDirectory()) {
+                String path = details.getRelativePath().getPathString();
+                String basePath = path.substring(0, path.length() - SOURCE_SUFFIX.length());
+                for (String suffix : suffixes) {
+                    compiledFiles.put(basePath + suffix, new File(getPackageDirectory(), basePath + suffix));
+                }
+            }
+        });
+        return compiledFiles;
+    }
+
+    /**
+     * Runs the {@code build} script. The build info only describes the compiled files tsc emitted last time, so it is
+     * deleted whenever Gradle doesn't run the task incrementally or any of those files is missing, e.g. after the
+     * package was synced again. Otherwise tsc would consider every module unchanged and emit nothing.
+     */
+    @TaskAction
+    public final void compile(IncrementalTaskInputs inputs) {
+        boolean useBuildInfo = getIncremental() && compilerSupportsIncremental();
+        if (!useBuildInfo || !inputs.isIncremental()
+                || getCompiledFiles().values().stream().anyMatch(file -> !file.isFile())) {
+            // A stale build info file would also be cached along with outputs it doesn't describe
+            GFileUtils.deleteQuietly(getBuildInfoFile());
+        }
+
+        ImmutableList.Builder<String> commandLine = ImmutableList.<String>builder().add("npm", "run-script", "build");
+        if (useBuildInfo) {
+            commandLine.add("--", "--incremental", "--tsBuildInfoFile", getBuildInfoFile().getAbsolutePath());
+        }
+        processMetrics.get().exec(commandLine.build(), getPackageDirectory());
+    }
+
+    /** Whether the given relative path in a package is one of the files tsc emits next to a source file. */
+    static boolean isCompiledFile(String path, Set<String> sourcePaths) {
+        for (String suffix : ImmutableList.of(".js", DECLARATION_SUFFIX, ".js.map")) {
+            if (path.endsWith(suffix)
+                    && sourcePaths.contains(path.substring(0, path.length() - suffix.length()) + SOURCE_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean compilerSupportsIncremental() {
+        File compilerManifest = new File(getPackageDirectory(), "node_modules/typescript/package.json");
+        if (!compilerManifest.isFile()) {
+            return false;
+        }
+        String version;
+        try {
+            version = OBJECT_MAPPER.readTree(compilerManifest).path("version").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + compilerManifest, e);
+        }
+        // --incremental was added in TypeScript 3.4
+        Matcher matcher = MAJOR_MINOR_VERSION.matcher(version);
+        boolean supported = matcher.lookingAt()
+                && (Integer.parseInt(matcher.group(1)) > 3
+                        || (Integer.parseInt(matcher.group(1)) == 3 && Integer.parseInt(matcher.group(2)) >= 4));
+        if (!supported) {
+            getLogger().info("TypeScript compiler {} doesn't support --incremental, compiling all files", version);
+        }
+        return supported;
+    }
+
+    private JsonNode readTsConfig() {
+        try {
+            return OBJECT_MAPPER.readTree(getTsConfigFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + getTsConfigFile(), e);
+        }
+    }
+}
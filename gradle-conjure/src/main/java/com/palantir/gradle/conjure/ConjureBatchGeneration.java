@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates many IR files with a single generator process, for generators which support
+ * {@code generate-batch <manifest>} in addition to the {@code generate <ir> <output>} command required by RFC 002.
+ * The manifest is a JSON array with an object per IR file:
+ *
+ * <pre>
+ * [{"input": "/path/to/api-1.0.0.conjure.json", "output": "/path/to/api", "options": ["--rawSource"]}]
+ * </pre>
+ *
+ * <p>For generators with a long start-up time this saves a process launch per file.
+ */
+final class ConjureBatchGeneration {
+    private static final Logger log = LoggerFactory.getLogger(ConjureBatchGeneration.class);
+
+    static final String GENERATE_BATCH = "generate-batch";
+
+    private static final long PROBE_TIMEOUT_SECONDS = 60;
+    // Distributions are extracted into directories named after the hash of their archive, so a distribution at the
+    // same real path always gives the same answer
+    private static final Map<String, Boolean> SUPPORTED_BY_DISTRIBUTION = new ConcurrentHashMap<>();
+
+    private ConjureBatchGeneration() { }
+
+    /**
+     * Whether a generator which batch generation was enabled for actually supports {@value #GENERATE_BATCH}, i.e.
+     * whether {@code generate-batch --help} succeeds. This only guards against misconfiguration: CLIs which handle
+     * {@code --help} for any command pass it too, which is why batch generation must be enabled explicitly. The probe
+     * starts the generator, so it runs within the {@link ConjureGeneratorLimit} with the given key, and only once per
+     * distribution for the lifetime of the Gradle daemon.
+     */
+    static boolean isSupported(File executable, File distribution, String limitKey) {
+        String key;
+        try {
+            key = distribution.toPath().toRealPath().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resolve " + distribution, e);
+        }
+        Boolean supported = SUPPORTED_BY_DISTRIBUTION.get(key);
+        if (supported == null) {
+            boolean[] probed = new boolean[1];
+            ConjureGeneratorLimit.run(limitKey, () -> probed[0] = probe(executable, PROBE_TIMEOUT_SECONDS));
+            supported = probed[0];
+            SUPPORTED_BY_DISTRIBUTION.putIfAbsent(key, supported);
+        }
+        return supported;
+    }
+
+    @VisibleForTesting
+    static boolean probe(File executable, long timeoutSeconds) {
+        List<String> commandLine = ImmutableList.of(executable.getAbsolutePath(), GENERATE_BATCH, "--help");
+        try {
+            Process process = new ProcessBuilder(commandLine).redirectErrorStream(true).start();
+            // Drain the output so that the process can't block on a full pipe, on a separate thread so that the
+            // timeout still applies if the process hangs without closing its output
+            Thread drain = new Thread(() -> {
+                try (InputStream output = process.getInputStream()) {
+                    ByteStreams.exhaust(output);
+                } catch (IOException e) {
+                    // The process was destroyed
+                }
+            }, "conjure-generate-batch-probe");
+            drain.setDaemon(true);
+            drain.start();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                log.info("{} {} --help didn't finish within {} seconds, assuming it isn't supported",
+                        executable, GENERATE_BATCH, timeoutSeconds);
+                return false;
+            }
+            boolean supported = process.exitValue() == 0;
+            log.info("{} {} {}", executable, supported ? "supports" : "doesn't support", GENERATE_BATCH);
+            return supported;
+        } catch (IOException e) {
+            log.info("Unable to determine whether {} supports {}", executable, GENERATE_BATCH, e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the manifest for the given {@link ConjureGeneratorTask#submitGeneration command lines} to
+     * {@code manifest} and returns the command line generating all of them at once.
+     */
+    static List<String> batchCommandLine(File executable, File manifest, List<List<String>> commandLines) {
+        ArrayNode entries = ObjectMappers.OBJECT_MAPPER.createArrayNode();
+        for (List<String> commandLine : commandLines) {
+            ObjectNode entry = entries.addObject();
+            entry.put("input", ConjureGeneratorTask.sourceFileOf(commandLine).getAbsolutePath());
+            entry.put("output", ConjureGeneratorTask.outputDirectoryOf(commandLine).getAbsolutePath());
+            ConjureGeneratorTask.optionsOf(commandLine).forEach(entry.putArray("options")::add);
+        }
+        try {
+            GFileUtils.mkdirs(manifest.getParentFile());
+            ObjectMappers.OBJECT_MAPPER.writeValue(manifest, entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write generator manifest " + manifest, e);
+        }
+        return ImmutableList.of(executable.getAbsolutePath(), GENERATE_BATCH, manifest.getAbsolutePath());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.util.List;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A unit of work which generates many IR files with a single {@value ConjureBatchGeneration#GENERATE_BATCH} process,
+ * or with a process per file if the generator turns out not to support it. Whether it does is probed here rather than
+ * in the task action, so that the probe runs within the build's {@link ConjureGeneratorLimit} like any other
+ * generator process.
+ */
+public final class ConjureBatchGenerationWorker implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(ConjureBatchGenerationWorker.class);
+
+    private final File executable;
+    private final File distribution;
+    private final List<String> batchCommandLine;
+    private final List<List<String>> commandLines;
+    private final String limitKey;
+    private final ProcessMetricsReporter processMetrics;
+
+    @Inject
+    public ConjureBatchGenerationWorker(
+            File executable,
+            File distribution,
+            List<String> batchCommandLine,
+            List<List<String>> commandLines,
+            String limitKey,
+            ProcessMetricsReporter processMetrics) {
+        this.executable = executable;
+        this.distribution = distribution;
+        this.batchCommandLine = batchCommandLine;
+        this.commandLines = commandLines;
+        this.limitKey = limitKey;
+        this.processMetrics = processMetrics;
+    }
+
+    @Override
+    public void run() {
+        if (ConjureBatchGeneration.isSupported(executable, distribution, limitKey)) {
+            new ConjureGeneratorWorker(ImmutableList.of(batchCommandLine), limitKey, processMetrics).run();
+        } else {
+            log.warn("Batch generation is enabled, but {} doesn't support {}, generating {} files one at a time",
+                    executable, ConjureBatchGeneration.GENERATE_BATCH, commandLines.size());
+            new ConjureGeneratorWorker(commandLines, limitKey, processMetrics).run();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+/**
+ * Summarizes the {@link ConjureMetrics metrics} of every conjure task in the build into
+ * {@code build/reports/conjure/build.json} of the root project once the build finishes:
+ * <ul>
+ *     <li>the critical path, i.e. the chain of dependent conjure tasks with the largest total wall time;</li>
+ *     <li>the time lost to serial execution, i.e. how much longer the conjure tasks took from the first start to the
+ *     last finish than their critical path;</li>
+ *     <li>how many extraction and generation tasks were up to date or loaded from the build cache;</li>
+ *     <li>the slowest IR files of each generator, including calls in a generator daemon, with batches of IR files
+ *     generated by a single {@value ConjureBatchGeneration#GENERATE_BATCH} process reported as a whole.</li>
+ * </ul>
+ */
+final class ConjureBuildReport {
+    static final String BUILD_REPORT = "build.json";
+
+    private static final String EXTRA_PROPERTY = "com.palantir.conjure.build-report";
+    private static final int MAX_ENTRIES = 10;
+    private static final Set<String> GENERATE_COMMANDS =
+            ImmutableSet.of("generate", ConjureBatchGeneration.GENERATE_BATCH);
+
+    private final List<JsonNode> tasks = new ArrayList<>();
+    private final List<JsonNode> processes = new ArrayList<>();
+
+    private ConjureBuildReport() { }
+
+    /** Returns the report of the current build, which is written to the root project's build dir when it finishes. */
+    static synchronized ConjureBuildReport forBuild(Project project) {
+        Project rootProject = project.getRootProject();
+        ExtraPropertiesExtension extraProperties = rootProject.getExtensions().getExtraProperties();
+        if (extraProperties.has(EXTRA_PROPERTY)) {
+            return (ConjureBuildReport) extraProperties.get(EXTRA_PROPERTY);
+        }
+
+        ConjureBuildReport report = new ConjureBuildReport();
+        extraProperties.set(EXTRA_PROPERTY, report);
+        rootProject.getGradle().buildFinished(result -> report.write(
+                new File(rootProject.getBuildDir(), "reports/conjure/" + BUILD_REPORT)));
+        return report;
+    }
+
+    synchronized void add(JsonNode task, List<JsonNode> taskProcesses) {
+        tasks.add(task);
+        processes.addAll(taskProcesses);
+    }
+
+    private synchronized void write(File reportFile) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        List<String> criticalPath = criticalPath();
+        Map<String, JsonNode> tasksByPath = tasksByPath();
+        long criticalPathMillis = criticalPath.stream()
+                .mapToLong(path -> tasksByPath.get(path).path("wallTimeMillis").asLong())
+                .sum();
+        long firstStart = tasks.stream().mapToLong(task -> task.path("startTime").asLong()).min().getAsLong();
+        long lastEnd = tasks.stream().mapToLong(ConjureBuildReport::endTime).max().getAsLong();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("tasks", tasks.size());
+        report.put("wallTimeMillis", lastEnd - firstStart);
+        report.put("taskTimeMillis", tasks.stream().mapToLong(task -> task.path("wallTimeMillis").asLong()).sum());
+        report.put("criticalPathMillis", criticalPathMillis);
+        report.put("serialExecutionMillis", Math.max(0, lastEnd - firstStart - criticalPathMillis));
+        report.put("criticalPath", criticalPath);
+        report.put("extraction", outcomes(ConjureMetrics.EXTRACTION));
+        report.put("generation", outcomes(ConjureMetrics.GENERATION));
+        report.put("slowestIrFiles", slowestIrFiles());
+        report.put("slowestTasks", tasks.stream()
+                .sorted(Comparator.comparingLong((JsonNode task) -> task.path("wallTimeMillis").asLong()).reversed())
+                .limit(MAX_ENTRIES)
+                .map(task -> task.path("task").asText() + " (" + task.path("wallTimeMillis").asLong() + " ms)")
+                .collect(Collectors.toList()));
+
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            ObjectMappers.OBJECT_MAPPER.writeValue(reportFile, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + reportFile, e);
+        }
+    }
+
+    /** The chain of dependent tasks, in execution order, whose wall times add up to the most. */
+    private List<String> criticalPath() {
+        Map<String, JsonNode> tasksByPath = tasksByPath();
+        Map<String, Long> pathMillis = new HashMap<>();
+        Map<String, String> predecessors = new HashMap<>();
+        // Tasks only start once their dependencies have finished, so start order is a topological order
+        tasks.stream()
+                .sorted(Comparator.comparingLong(task -> task.path("startTime").asLong()))
+                .forEach(task -> {
+                    String path = task.path("task").asText();
+                    long longest = 0;
+                    for (JsonNode dependency : task.path("dependencies")) {
+                        Long dependencyMillis = pathMillis.get(dependency.asText());
+                        if (dependencyMillis != null && dependencyMillis > longest) {
+                            longest = dependencyMillis;
+                            predecessors.put(path, dependency.asText());
+                        }
+                    }
+                    pathMillis.put(path, longest + task.path("wallTimeMillis").asLong());
+                });
+
+        String last = pathMillis.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElseThrow(IllegalStateException::new);
+        List<String> criticalPath = new ArrayList<>();
+        for (String path = last; path != null && tasksByPath.containsKey(path); path = predecessors.get(path)) {
+            criticalPath.add(0, path);
+        }
+        return criticalPath;
+    }
+
+    /** How many tasks of the given category had each outcome, and the share that didn't have to run. */
+    private Map<String, Object> outcomes(String category) {
+        Map<String, Long> counts = tasks.stream()
+                .filter(task -> task.path("category").asText().equals(category))
+                .collect(Collectors.groupingBy(task -> task.path("outcome").asText(), TreeMap::new,
+                        Collectors.counting()));
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        long avoided = counts.getOrDefault("UP-TO-DATE", 0L) + counts.getOrDefault("FROM-CACHE", 0L);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        outcomes.put("tasks", total);
+        outcomes.put("outcomes", counts);
+        outcomes.put("hitRate", total == 0 ? 0 : (double) avoided / total);
+        return outcomes;
+    }
+
+    /**
+     * The IR files, or batches of IR files, which took the longest to generate, keyed by the name of the generator's
+     * executable.
+     */
+    private Map<String, List<String>> slowestIrFiles() {
+        return processes.stream()
+                .filter(process -> GENERATE_COMMANDS.contains(process.path("commandLine").path(1).asText()))
+                .collect(Collectors.groupingBy(
+                        process -> Paths.get(process.path("commandLine").path(0).asText()).getFileName().toString(),
+                        TreeMap::new,
+                        Collectors.collectingAndThen(Collectors.toList(), generatorProcesses -> generatorProcesses
+                                .stream()
+                                .sorted(Comparator.comparingLong(
+                                        (JsonNode process) -> process.path("wallTimeMillis").asLong()).reversed())
+                                .limit(MAX_ENTRIES)
+                                .map(process -> generatedIrFiles(process)
+                                        + " (" + process.path("wallTimeMillis").asLong() + " ms)")
+                                .collect(Collectors.toList()))));
+    }
+
+    /**
+     * The IR file passed to {@code generate}, or the IR files listed in the manifest passed to
+     * {@value ConjureBatchGeneration#GENERATE_BATCH}. The manifest is left in the task's temporary directory, so it
+     * is still there when the build finishes.
+     */
+    private static String generatedIrFiles(JsonNode process) {
+        String file = process.path("commandLine").path(2).asText();
+        if (!process.path("commandLine").path(1).asText().equals(ConjureBatchGeneration.GENERATE_BATCH)) {
+            return file;
+        }
+        try {
+            List<String> irFiles = new ArrayList<>();
+            for (JsonNode entry : ObjectMappers.OBJECT_MAPPER.readTree(new File(file))) {
+                irFiles.add(entry.path("input").asText());
+            }
+            return "batch of " + irFiles.size() + " " + irFiles;
+        } catch (IOException e) {
+            return "batch " + file;
+        }
+    }
+
+    private Map<String, JsonNode> tasksByPath() {
+        return tasks.stream().collect(Collectors.toMap(task -> task.path("task").asText(), task -> task));
+    }
+
+    private static long endTime(JsonNode task) {
+        return task.path("startTime").asLong() + task.path("wallTimeMillis").asLong();
+    }
+}
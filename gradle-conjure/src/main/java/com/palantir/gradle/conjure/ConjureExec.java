@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+import org.gradle.api.GradleException;
+
+/**
+ * Runs an external process, forwarding its output to the build output. Unlike {@code Project#exec} this doesn't need
+ * a {@link org.gradle.api.Project}, so it is safe to use from worker actions.
+ */
+final class ConjureExec {
+
+    private ConjureExec() { }
+
+    /** Runs the process in {@code workingDirectory}, or the current directory if it is null. */
+    static void exec(List<String> commandLine, File workingDirectory) {
+        exec(commandLine, workingDirectory, process -> { });
+    }
+
+    /** Like {@link #exec(List, File)}, calling {@code onStart} as soon as the process has started. */
+    static void exec(List<String> commandLine, File workingDirectory, Consumer<Process> onStart) {
+        Process process;
+        try {
+            process = new ProcessBuilder(commandLine)
+                    .directory(workingDirectory)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            throw new GradleException(String.format("A problem occurred starting process '%s'", commandLine), e);
+        }
+        onStart.accept(process);
+
+        int exitValue;
+        try (InputStream output = process.getInputStream()) {
+            ByteStreams.copy(output, System.out);
+            exitValue = process.waitFor();
+        } catch (IOException e) {
+            process.destroy();
+            throw new GradleException(String.format("A problem occurred running process '%s'", commandLine), e);
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new GradleException(String.format("Interrupted while running process '%s'", commandLine), e);
+        }
+
+        if (exitValue != 0) {
+            throw new GradleException(String.format(
+                    "Process '%s' finished with non-zero exit value %d", commandLine, exitValue));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+/**
+ * Bounds how many generator processes run at once across every conjure task of a build. Generator tasks return as soon
+ * as their work is submitted, so Gradle can start the generators for other languages in the same project while they
+ * run; this keeps all of that work to a single per-build limit.
+ *
+ * <p>Limits are looked up by a key which identifies the build, as worker parameters can't carry a semaphore.
+ */
+final class ConjureGeneratorLimit {
+    /**
+     * Project property, read from the root project, which sets the maximum number of generator processes that run
+     * concurrently. Defaults to Gradle's max worker count.
+     */
+    static final String MAX_CONCURRENT_GENERATORS_PROPERTY = "com.palantir.conjure.max-concurrent-generators";
+
+    private static final String KEY_PROPERTY = "com.palantir.conjure.generator-limit-key";
+    private static final Map<String, Semaphore> LIMITS = new ConcurrentHashMap<>();
+
+    private ConjureGeneratorLimit() { }
+
+    /** Returns the key of the current build's limit, creating the limit for the first task of the build. */
+    static synchronized String keyFor(Project project) {
+        Project rootProject = project.getRootProject();
+        ExtraPropertiesExtension extraProperties = rootProject.getExtensions().getExtraProperties();
+        if (extraProperties.has(KEY_PROPERTY)) {
+            return (String) extraProperties.get(KEY_PROPERTY);
+        }
+
+        String key = UUID.randomUUID().toString();
+        LIMITS.put(key, new Semaphore(maxConcurrentGenerators(rootProject), true));
+        extraProperties.set(KEY_PROPERTY, key);
+        rootProject.getGradle().buildFinished(result -> LIMITS.remove(key));
+        return key;
+    }
+
+    /** Runs {@code action} once one of the limit's permits is available. */
+    static void run(String key, Runnable action) {
+        Semaphore limit = LIMITS.get(key);
+        if (limit == null) {
+            action.run();
+            return;
+        }
+
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting to run a generator", e);
+        }
+        try {
+            action.run();
+        } finally {
+            limit.release();
+        }
+    }
+
+    private static int maxConcurrentGenerators(Project rootProject) {
+        Object value = rootProject.findProperty(MAX_CONCURRENT_GENERATORS_PROPERTY);
+        if (value == null) {
+            return rootProject.getGradle().getStartParameter().getMaxWorkerCount();
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw invalidLimit(value, e);
+        }
+        if (limit <= 0) {
+            throw invalidLimit(value, null);
+        }
+        return limit;
+    }
+
+    private static GradleException invalidLimit(Object value, Throwable cause) {
+        return new GradleException(String.format(
+                "%s must be a positive integer, got '%s'", MAX_CONCURRENT_GENERATORS_PROPERTY, value), cause);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.Permission;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.GradleException;
+
+/**
+ * A unit of work which calls a generator's CLI entry point directly instead of forking its start script. It runs in
+ * a Gradle worker daemon whose classpath is the generator's jars, so the generator's JVM is started and warmed up
+ * once, then reused by every task and build that uses the same generator version.
+ *
+ * <p>Generators report failure by throwing from {@code main} or by calling {@code System.exit} with a non-zero status.
+ * Calls to {@code System.exit} are intercepted while {@code main} runs, so they fail the work item rather than kill the
+ * worker, and a zero status is treated as success.
+ */
+public final class ConjureGeneratorMainWorker implements Runnable {
+    private final String mainClass;
+    private final List<List<String>> commandLines;
+    private final ProcessMetricsReporter processMetrics;
+
+    /**
+     * Calls {@code main} with the arguments of each of the {@code commandLines}, i.e. without the start script, which
+     * is only used to report metrics.
+     */
+    @Inject
+    public ConjureGeneratorMainWorker(
+            String mainClass, List<List<String>> commandLines, ProcessMetricsReporter processMetrics) {
+        this.mainClass = mainClass;
+        this.commandLines = commandLines;
+        this.processMetrics = processMetrics;
+    }
+
+    @Override
+    public void run() {
+        Method main;
+        try {
+            main = Class.forName(mainClass, true, Thread.currentThread().getContextClassLoader())
+                    .getMethod("main", String[].class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new GradleException("Unable to find generator entry point " + mainClass, e);
+        }
+
+        for (List<String> commandLine : commandLines) {
+            List<String> args = commandLine.subList(1, commandLine.size());
+            processMetrics.call(commandLine, () -> {
+                int status = invoke(main, args);
+                if (status != 0) {
+                    throw new GradleException(String.format(
+                            "Generator %s exited with status %d for args %s", mainClass, status, args));
+                }
+            });
+        }
+    }
+
+    /** Calls {@code main}, returning the status it passed to {@code System.exit}, or 0 if it returned normally. */
+    private int invoke(Method main, List<String> args) {
+        SecurityManager previous = System.getSecurityManager();
+        boolean intercepting = setSecurityManager(new ExitInterceptor(previous));
+        try {
+            main.invoke(null, (Object) args.toArray(new String[0]));
+            return 0;
+        } catch (IllegalAccessException e) {
+            throw new GradleException("Unable to call generator entry point " + mainClass, e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ExitException) {
+                return ((ExitException) e.getCause()).status;
+            }
+            throw new GradleException(
+                    String.format("Generator %s failed with args %s", mainClass, args), e.getCause());
+        } finally {
+            if (intercepting) {
+                setSecurityManager(previous);
+            }
+        }
+    }
+
+    private static boolean setSecurityManager(SecurityManager securityManager) {
+        try {
+            System.setSecurityManager(securityManager);
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // Newer JVMs may not allow installing a security manager, in which case System.exit can't be intercepted
+            return false;
+        }
+    }
+
+    private static final class ExitInterceptor extends SecurityManager {
+        private final SecurityManager delegate;
+
+        ExitInterceptor(SecurityManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void checkExit(int status) {
+            throw new ExitException(status);
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+            if (delegate != null) {
+                delegate.checkPermission(permission);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+            if (delegate != null) {
+                delegate.checkPermission(permission, context);
+            }
+        }
+    }
+
+    private static final class ExitException extends SecurityException {
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ") called by generator");
+            this.status = status;
+        }
+    }
+}
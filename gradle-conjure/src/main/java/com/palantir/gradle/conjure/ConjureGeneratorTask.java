@@ -16,27 +16,66 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 import com.palantir.gradle.conjure.api.GeneratorOptions;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.util.GFileUtils;
+import org.gradle.workers.WorkerExecutor;
 
+@CacheableTask
 public class ConjureGeneratorTask extends SourceTask {
+    private static final int SOURCE_FILE_ARGUMENT = 2;
+    private static final int OUTPUT_DIRECTORY_ARGUMENT = 3;
+    private static final int FIRST_OPTION_ARGUMENT = 4;
+
     private Supplier<File> executablePathSupplier;
     private File outputDirectory;
-    private Supplier<GeneratorOptions> options;
+    private final Property<GeneratorOptions> options = getProject().getObjects().property(GeneratorOptions.class);
+    private GeneratorOptions resolvedOptions;
+    private boolean taskGraphReady;
+    private int maxParallelism;
+    private boolean useGeneratorDaemon;
+    private final String limitKey;
+    private final Provider<ProcessMetricsReporter> processMetrics;
 
     public ConjureGeneratorTask() {
-        // @TaskAction uses doFirst I think, because other actions prepended using doFirst end up happening AFTER the
-        // main task
-        doLast(task -> this.compileFiles());
+        this.maxParallelism = getProject().getGradle().getStartParameter().getMaxWorkerCount();
+        this.useGeneratorDaemon = ConjureGeneratorWorkers.isGeneratorDaemonEnabled(getProject());
+        this.limitKey = ConjureGeneratorLimit.keyFor(getProject());
+        this.processMetrics = ConjureMetrics.processReporter(this);
+        getProject().getGradle().getTaskGraph().whenReady(graph -> taskGraphReady = true);
+    }
+
+    @Inject
+    protected WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
     }
 
     public final void setOutputDirectory(File outputDirectory) {
@@ -52,18 +91,86 @@ public class ConjureGeneratorTask extends SourceTask {
         this.executablePathSupplier = executablePath;
     }
 
-    @InputFile
+    @Internal
     public final File getExecutablePath() {
         return executablePathSupplier.get();
     }
 
+    /**
+     * The extracted distribution containing the {@link #getExecutablePath() executable} under {@code bin/}. The
+     * generator is identified by the contents of this directory rather than its location, so outputs can be shared
+     * through the build cache between checkouts and machines.
+     */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final File getExecutableDistribution() {
+        return getExecutablePath().getParentFile().getParentFile();
+    }
+
+    @Override
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final FileTree getSource() {
+        return super.getSource();
+    }
+
     public final void setOptions(Supplier<GeneratorOptions> options) {
-        this.options = options;
+        this.options.set(getProject().provider(options::get));
     }
 
-    @Input
+    public final void setOptions(Provider<GeneratorOptions> options) {
+        this.options.set(options);
+    }
+
+    /**
+     * The generator options. Once the task graph is ready the build can no longer change them, so they are resolved
+     * only once from then on and the same snapshot is used for fingerprinting and for every source file.
+     */
+    @Internal
     public final GeneratorOptions getOptions() {
-        return this.options.get();
+        if (!taskGraphReady) {
+            return options.get();
+        }
+        if (resolvedOptions == null) {
+            resolvedOptions = options.get();
+        }
+        return resolvedOptions;
+    }
+
+    /**
+     * The {@link #getOptions() options} as sorted command-line arguments, so that equivalent options produce the same
+     * fingerprint regardless of the order they were declared in or the types of their values.
+     */
+    @Input
+    public final List<String> getCanonicalOptions() {
+        return RenderGeneratorOptions.toCanonicalArgs(getOptions());
+    }
+
+    /**
+     * The maximum number of generator processes this task runs concurrently. Defaults to Gradle's max worker count.
+     */
+    @Internal
+    public final int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    public final void setMaxParallelism(int maxParallelism) {
+        Preconditions.checkArgument(maxParallelism > 0, "maxParallelism must be positive, got %s", maxParallelism);
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * Whether JVM generators are called in-process in a reusable worker daemon instead of forked once per file.
+     * Defaults to the {@value ConjureGeneratorWorkers#GENERATOR_DAEMON_PROPERTY} project property.
+     */
+    @Internal
+    public final boolean getUseGeneratorDaemon() {
+        return useGeneratorDaemon;
+    }
+
+    public final void setUseGeneratorDaemon(boolean useGeneratorDaemon) {
+        this.useGeneratorDaemon = useGeneratorDaemon;
     }
 
     /**
@@ -75,27 +182,128 @@ public class ConjureGeneratorTask extends SourceTask {
     }
 
     /**
-     * Entry point for the task.
+     * Called before every source file is regenerated, i.e. whenever the task doesn't run incrementally. Only the task
+     * action knows whether Gradle runs it incrementally, so preparation which must not happen on incremental runs,
+     * such as clearing the output directory, belongs here rather than in a {@code doFirst} action.
+     */
+    protected void prepareForFullGeneration() { }
+
+    /**
+     * Submits the generator invocations, one per source file, to the worker API. By default they are spread over at
+     * most {@link #getMaxParallelism()} work items.
+     *
+     * <p>The task action returns without waiting for the work, so that Gradle can meanwhile run other tasks, including
+     * those for other languages in the same project. Any processing of the generated files must therefore happen in
+     * the submitted work items.
+     */
+    protected void submitGeneration(List<List<String>> commandLines) {
+        if (commandLines.isEmpty()) {
+            return;
+        }
+        int workItems = Math.min(commandLines.size(), getMaxParallelism());
+        List<List<List<String>>> partitions = new ArrayList<>(workItems);
+        for (int i = 0; i < workItems; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < commandLines.size(); i++) {
+            partitions.get(i % workItems).add(commandLines.get(i));
+        }
+
+        partitions.forEach(partition -> ConjureGeneratorWorkers.submit(
+                getWorkerExecutor(),
+                String.format("Running %s generator (%d files)", getName(), partition.size()),
+                getExecutablePath(),
+                partition,
+                getUseGeneratorDaemon(),
+                getLimitKey(),
+                getProcessMetrics()));
+    }
+
+    /** The source file which a command line passed to {@link #submitGeneration} generates from. */
+    static File sourceFileOf(List<String> commandLine) {
+        return new File(commandLine.get(SOURCE_FILE_ARGUMENT));
+    }
+
+    /** The directory which a command line passed to {@link #submitGeneration} generates into. */
+    static File outputDirectoryOf(List<String> commandLine) {
+        return new File(commandLine.get(OUTPUT_DIRECTORY_ARGUMENT));
+    }
+
+    /** The rendered {@link #getOptions() options} of a command line passed to {@link #submitGeneration}. */
+    static List<String> optionsOf(List<String> commandLine) {
+        return commandLine.subList(FIRST_OPTION_ARGUMENT, commandLine.size());
+    }
+
+    /** The key of the build's {@link ConjureGeneratorLimit}, which every forked generator must run within. */
+    final String getLimitKey() {
+        return limitKey;
+    }
+
+    /** Runs and reports on this task's forked generators when {@link ConjureMetrics metrics} are enabled. */
+    final ProcessMetricsReporter getProcessMetrics() {
+        return processMetrics.get();
+    }
+
+    /**
+     * Entry point for the task. Each source file is generated by a separate process; these are spread over at most
+     * {@link #getMaxParallelism()} work items which Gradle runs concurrently.
+     *
+     * <p>If only source files changed since the last run and each of them has its own {@link #outputDirectoryFor
+     * output directory}, only added or modified files are regenerated and the outputs of removed files are deleted.
      */
-    public void compileFiles() {
-        getSource().getFiles().forEach(file -> {
-            GeneratorOptions generatorOptions = getOptions();
-            getProject().exec(execSpec -> {
-                ImmutableList.Builder<String> commandArgsBuilder = ImmutableList.builder();
-                File thisOutputDirectory = outputDirectoryFor(file);
-                getProject().mkdir(thisOutputDirectory);
-                commandArgsBuilder.add(
-                        getExecutablePath().getAbsolutePath(),
-                        "generate",
-                        file.getAbsolutePath(),
-                        thisOutputDirectory.getAbsolutePath());
-
-                List<String> additionalArgs = RenderGeneratorOptions.toArgs(generatorOptions, requiredOptions(file));
-                getLogger().info("Running generator with args: {}", additionalArgs);
-                commandArgsBuilder.addAll(additionalArgs);
-                execSpec.commandLine(commandArgsBuilder.build().toArray());
-            });
-        });
+    @TaskAction
+    public final void compileFiles(IncrementalTaskInputs inputs) {
+        Set<File> sourceFiles = getSource().getFiles();
+        Set<File> outOfDate = new HashSet<>();
+        Set<File> removed = new HashSet<>();
+        if (inputs.isIncremental()) {
+            inputs.outOfDate(details -> outOfDate.add(details.getFile()));
+            inputs.removed(details -> removed.add(details.getFile()));
+        }
+
+        Set<File> filesToGenerate;
+        if (inputs.isIncremental() && canGenerateIncrementally(sourceFiles, outOfDate, removed)) {
+            getLogger().info("Regenerating {} changed and removing {} deleted source files",
+                    outOfDate.size(), removed.size());
+            Sets.union(outOfDate, removed).stream()
+                    .map(this::outputDirectoryFor)
+                    .filter(File::exists)
+                    .forEach(GFileUtils::forceDelete);
+            filesToGenerate = outOfDate;
+        } else {
+            prepareForFullGeneration();
+            filesToGenerate = sourceFiles;
+        }
+
+        GeneratorOptions generatorOptions = getOptions();
+        submitGeneration(filesToGenerate.stream()
+                .sorted(Comparator.comparing(File::getPath))
+                .map(file -> commandLineFor(file, generatorOptions))
+                .collect(Collectors.toList()));
+    }
+
+    private boolean canGenerateIncrementally(Set<File> sourceFiles, Set<File> outOfDate, Set<File> removed) {
+        // Any other input (e.g. the generator itself) changing requires everything to be regenerated
+        return sourceFiles.containsAll(outOfDate)
+                && Sets.union(outOfDate, removed).stream()
+                        .noneMatch(file -> outputDirectoryFor(file).equals(getOutputDirectory()));
+    }
+
+    private List<String> commandLineFor(File file, GeneratorOptions generatorOptions) {
+        File thisOutputDirectory = outputDirectoryFor(file);
+        GFileUtils.mkdirs(thisOutputDirectory);
+
+        ImmutableList.Builder<String> commandArgsBuilder = ImmutableList.builder();
+        commandArgsBuilder.add(
+                getExecutablePath().getAbsolutePath(),
+                "generate",
+                file.getAbsolutePath(),
+                thisOutputDirectory.getAbsolutePath());
+
+        List<String> additionalArgs = RenderGeneratorOptions.toArgs(generatorOptions, requiredOptions(file));
+        getLogger().info("Running generator with args: {}", additionalArgs);
+        commandArgsBuilder.addAll(additionalArgs);
+        return commandArgsBuilder.build();
     }
 
     /**
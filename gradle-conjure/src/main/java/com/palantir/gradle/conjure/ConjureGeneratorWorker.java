@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.util.List;
+import javax.inject.Inject;
+
+/**
+ * A unit of work submitted to the Gradle Worker API which runs a batch of generator invocations one after another,
+ * each within the build's {@link ConjureGeneratorLimit}.
+ */
+public final class ConjureGeneratorWorker implements Runnable {
+    private final List<List<String>> commandLines;
+    private final String limitKey;
+    private final ProcessMetricsReporter processMetrics;
+
+    @Inject
+    public ConjureGeneratorWorker(
+            List<List<String>> commandLines, String limitKey, ProcessMetricsReporter processMetrics) {
+        this.commandLines = commandLines;
+        this.limitKey = limitKey;
+        this.processMetrics = processMetrics;
+    }
+
+    @Override
+    public void run() {
+        commandLines.forEach(commandLine ->
+                ConjureGeneratorLimit.run(limitKey, () -> processMetrics.exec(commandLine)));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+import org.gradle.api.Project;
+import org.gradle.workers.IsolationMode;
+import org.gradle.workers.WorkerExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Submits generator invocations to the Gradle Worker API, either as forked processes or, when the generator daemon
+ * is enabled, as in-process calls inside a reusable worker daemon.
+ */
+final class ConjureGeneratorWorkers {
+    private static final Logger log = LoggerFactory.getLogger(ConjureGeneratorWorkers.class);
+
+    /**
+     * Project property which opts into running JVM generators in long-lived Gradle worker daemons rather than
+     * forking a new JVM per invocation.
+     */
+    static final String GENERATOR_DAEMON_PROPERTY = "com.palantir.conjure.generator-daemon";
+
+    private ConjureGeneratorWorkers() { }
+
+    static boolean isGeneratorDaemonEnabled(Project project) {
+        Object value = project.findProperty(GENERATOR_DAEMON_PROPERTY);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Submits a single work item which runs the given command lines, all of which invoke {@code executable}, in order.
+     * Forked generators are bounded by the {@link ConjureGeneratorLimit} with the given key; a generator daemon runs
+     * one invocation at a time and is only bounded by Gradle's max worker count.
+     */
+    static void submit(
+            WorkerExecutor workerExecutor,
+            String displayName,
+            File executable,
+            List<List<String>> commandLines,
+            boolean useGeneratorDaemon,
+            String limitKey,
+            ProcessMetricsReporter processMetrics) {
+        Optional<JvmGeneratorDistribution> distribution = useGeneratorDaemon
+                ? JvmGeneratorDistribution.fromExecutable(executable)
+                : Optional.empty();
+
+        if (distribution.isPresent()) {
+            log.info("{}: calling {} in a generator daemon", displayName, distribution.get().getMainClass());
+            workerExecutor.submit(ConjureGeneratorMainWorker.class, config -> {
+                config.setIsolationMode(IsolationMode.PROCESS);
+                config.setDisplayName(displayName);
+                config.classpath(distribution.get().getClasspath());
+                config.setParams(
+                        distribution.get().getMainClass(), ImmutableList.copyOf(commandLines), processMetrics);
+            });
+        } else {
+            log.info("{}: forking {}", displayName, executable);
+            workerExecutor.submit(ConjureGeneratorWorker.class, config -> {
+                config.setIsolationMode(IsolationMode.NONE);
+                config.setDisplayName(displayName);
+                config.setParams(ImmutableList.copyOf(commandLines), limitKey, processMetrics);
+            });
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent index of the IR files a generator task has generated from, keyed by file name, i.e. by the
+ * coordinates of the resolved IR artifact. For each file it records the SHA-256 of the IR, the product metadata
+ * parsed from its name, which generator and arguments it was last generated with and the hash of the resulting
+ * output directory.
+ *
+ * <p>This lets a task which Gradle runs non-incrementally (e.g. after another IR file was replaced by a file with a
+ * different name, or once Gradle lost the task history) skip every IR file whose generated sources are still exactly
+ * what the same generator produced from the same IR, without spawning the generator.
+ */
+final class ConjureIrIndex {
+    private static final Logger log = LoggerFactory.getLogger(ConjureIrIndex.class);
+
+    private static final int VERSION = 1;
+
+    private final File indexFile;
+    private final Map<String, Entry> entries;
+    private final Map<File, String> irHashes = new HashMap<>();
+
+    private ConjureIrIndex(File indexFile, Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.entries = entries;
+    }
+
+    /** Reads the index at {@code indexFile}, starting from an empty index if it is missing or unreadable. */
+    static ConjureIrIndex load(File indexFile) {
+        Map<String, Entry> entries = new TreeMap<>();
+        if (indexFile.isFile()) {
+            try {
+                JsonNode index = ObjectMappers.OBJECT_MAPPER.readTree(indexFile);
+                if (index.path("version").asInt() == VERSION) {
+                    Iterator<Map.Entry<String, JsonNode>> fields = index.path("entries").fields();
+                    fields.forEachRemaining(field -> entries.put(field.getKey(), Entry.fromJson(field.getValue())));
+                } else {
+                    log.info("Ignoring IR index {} written by a different version of the plugin", indexFile);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.info("Ignoring unreadable IR index {}", indexFile, e);
+                entries.clear();
+            }
+        }
+        return new ConjureIrIndex(indexFile, entries);
+    }
+
+    /**
+     * The options parsed from the name of {@code irFile}, which are computed by {@code parser} only if the IR file
+     * isn't indexed yet.
+     */
+    Map<String, String> productMetadata(File irFile, Supplier<Map<String, String>> parser) {
+        Entry entry = entries.get(irFile.getName());
+        if (entry != null && !entry.productMetadata.isEmpty()) {
+            return entry.productMetadata;
+        }
+        Map<String, String> productMetadata = parser.get();
+        entries.put(irFile.getName(), entry == null
+                ? new Entry(sha256(irFile), productMetadata, null, null)
+                : new Entry(entry.sha256, productMetadata, entry.generator, entry.outputHash));
+        return productMetadata;
+    }
+
+    /**
+     * Whether {@code outputDirectory} still contains exactly what {@code generator} last generated into it from the
+     * current contents of {@code irFile}.
+     */
+    boolean isUpToDate(File irFile, String generator, File outputDirectory) {
+        Entry entry = entries.get(irFile.getName());
+        return entry != null
+                && generator.equals(entry.generator)
+                && sha256(irFile).equals(entry.sha256)
+                && outputDirectory.isDirectory()
+                && hashDirectory(outputDirectory).equals(entry.outputHash);
+    }
+
+    /** Records that {@code generator} has just generated {@code outputDirectory} from {@code irFile}. */
+    void recordGeneration(File irFile, String generator, File outputDirectory) {
+        Entry previous = entries.get(irFile.getName());
+        Map<String, String> productMetadata = previous == null ? ImmutableMap.of() : previous.productMetadata;
+        entries.put(irFile.getName(),
+                new Entry(sha256(irFile), productMetadata, generator, hashDirectory(outputDirectory)));
+    }
+
+    /**
+     * Deletes the index file, so that if generation fails after this no file is skipped based on outputs which may
+     * since have been overwritten.
+     */
+    void invalidate() {
+        GFileUtils.deleteQuietly(indexFile);
+    }
+
+    /** Drops every IR file other than {@code irFiles} and writes the index to disk. */
+    void write(Set<File> irFiles) {
+        Set<String> names = irFiles.stream().map(File::getName).collect(Collectors.toSet());
+        entries.keySet().retainAll(names);
+
+        ObjectNode index = ObjectMappers.OBJECT_MAPPER.createObjectNode();
+        index.put("version", VERSION);
+        ObjectNode indexEntries = index.putObject("entries");
+        entries.forEach((name, entry) -> indexEntries.set(name, entry.toJson()));
+        try {
+            GFileUtils.mkdirs(indexFile.getParentFile());
+            ObjectMappers.OBJECT_MAPPER.writeValue(indexFile, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write IR index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Hashes the contents of a generator distribution, which may be a link to the directory it was extracted into.
+     * The hash is the same wherever the distribution is and however its files were touched, so an index stays valid
+     * after the distribution is extracted again.
+     */
+    static String hashDistribution(File distribution) {
+        try {
+            return hashDirectory(distribution.toPath().toRealPath().toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resolve " + distribution, e);
+        }
+    }
+
+    /**
+     * Identifies the executable of the distribution with the given {@link #hashDistribution hash} together with the
+     * arguments it is called with for a single file.
+     */
+    static String generatorKey(String distributionHash, File executable, List<String> arguments) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(distributionHash, StandardCharsets.UTF_8);
+        hasher.putInt(executable.getName().length()).putString(executable.getName(), StandardCharsets.UTF_8);
+        arguments.forEach(argument -> hasher.putInt(argument.length()).putString(argument, StandardCharsets.UTF_8));
+        return hasher.hash().toString();
+    }
+
+    private String sha256(File irFile) {
+        return irHashes.computeIfAbsent(irFile, file -> {
+            try {
+                return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to hash " + file, e);
+            }
+        });
+    }
+
+    /** Hashes the relative paths and contents of every file under {@code directory}. */
+    private static String hashDirectory(File directory) {
+        Path root = directory.toPath();
+        Hasher hasher = Hashing.sha256().newHasher();
+        try (Stream<Path> walk = Files.walk(root)) {
+            List<Path> files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            for (Path file : files) {
+                String relativePath = root.relativize(file).toString();
+                hasher.putInt(relativePath.length()).putString(relativePath, StandardCharsets.UTF_8);
+                byte[] content = Files.readAllBytes(file);
+                hasher.putInt(content.length).putBytes(content);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to hash " + directory, e);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static final class Entry {
+        private final String sha256;
+        private final Map<String, String> productMetadata;
+        private final String generator;
+        private final String outputHash;
+
+        Entry(String sha256, Map<String, String> productMetadata, String generator, String outputHash) {
+            this.sha256 = Preconditions.checkNotNull(sha256, "sha256");
+            this.productMetadata = ImmutableMap.copyOf(productMetadata);
+            this.generator = generator;
+            this.outputHash = outputHash;
+        }
+
+        static Entry fromJson(JsonNode json) {
+            Map<String, String> productMetadata = new TreeMap<>();
+            json.path("productMetadata").fields()
+                    .forEachRemaining(field -> productMetadata.put(field.getKey(), field.getValue().asText()));
+            return new Entry(
+                    json.get("sha256").asText(),
+                    productMetadata,
+                    json.hasNonNull("generator") ? json.get("generator").asText() : null,
+                    json.hasNonNull("outputHash") ? json.get("outputHash").asText() : null);
+        }
+
+        ObjectNode toJson() {
+            ObjectNode json = ObjectMappers.OBJECT_MAPPER.createObjectNode();
+            json.put("sha256", sha256);
+            ObjectNode metadata = json.putObject("productMetadata");
+            productMetadata.forEach(metadata::put);
+            if (generator != null) {
+                json.put("generator", generator);
+                json.put("outputHash", outputHash);
+            }
+            return json;
+        }
+    }
+}
@@ -22,15 +22,15 @@ import java.io.IOException;
 import java.util.Set;
 import java.util.function.Supplier;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskCollection;
 import org.gradle.jvm.tasks.Jar;
 
 public class ConjureJavaServiceDependenciesTask extends DefaultTask {
     public static final String SLS_RECOMMENDED_PRODUCT_DEPENDENCIES = "Sls-Recommended-Product-Dependencies";
     private Supplier<Set<ServiceDependency>> serviceDependencies;
-    private Project subproject;
+    private TaskCollection<Jar> jarTasks;
 
     @Input
     public final Set<ServiceDependency> getServiceDependencies() {
@@ -41,13 +41,13 @@ public class ConjureJavaServiceDependenciesTask extends DefaultTask {
         this.serviceDependencies = serviceDependencies;
     }
 
-    public final void setSubproject(Project subproject) {
-        this.subproject = subproject;
+    public final void setJarTasks(TaskCollection<Jar> jarTasks) {
+        this.jarTasks = jarTasks;
     }
 
     @TaskAction
     public final void populateServiceDependencies() throws IOException {
-        for (Jar jarTask : subproject.getTasks().withType(Jar.class)) {
+        for (Jar jarTask : jarTasks) {
             jarTask.getManifest()
                     .getAttributes()
                     .putIfAbsent(SLS_RECOMMENDED_PRODUCT_DEPENDENCIES,
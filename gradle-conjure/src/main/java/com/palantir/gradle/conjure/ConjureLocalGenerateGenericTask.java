@@ -18,12 +18,15 @@ package com.palantir.gradle.conjure;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import java.io.File;
 import java.util.Map;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.gradle.api.tasks.CacheableTask;
 
+@CacheableTask
 public class ConjureLocalGenerateGenericTask extends ConjureLocalGenerateTask {
 
     private static final Pattern PATTERN = Pattern.compile(
@@ -31,7 +34,9 @@ public class ConjureLocalGenerateGenericTask extends ConjureLocalGenerateTask {
 
     @Override
     protected final Map<String, Supplier<Object>> requiredOptions(File irFile) {
-        return resolveProductMetadata(irFile.getName());
+        Map<String, String> productMetadata = getIndex().productMetadata(irFile, () ->
+                Maps.transformValues(resolveProductMetadata(irFile.getName()), value -> (String) value.get()));
+        return Maps.transformValues(productMetadata, value -> () -> value);
     }
 
     @VisibleForTesting
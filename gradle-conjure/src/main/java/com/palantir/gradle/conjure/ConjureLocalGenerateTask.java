@@ -16,9 +16,136 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.collect.ImmutableList;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.workers.IsolationMode;
 
+@CacheableTask
 public class ConjureLocalGenerateTask extends ConjureGeneratorTask {
+    private final Provider<RegularFile> indexFile =
+            getProject().getLayout().getBuildDirectory().file("conjure-index/" + getName() + ".json");
+    private ConjureIrIndex index;
+    private String distributionHash;
+    private List<List<String>> unindexedGeneration;
+    private boolean batchGeneration;
+
+    public ConjureLocalGenerateTask() {
+        getProject().getGradle().getTaskGraph().addTaskExecutionListener(new IndexListener());
+    }
+
+    /**
+     * The {@link ConjureIrIndex index} of the IR files this task generated from, which lets it skip IR files whose
+     * generated sources are still up to date even when Gradle runs it non-incrementally.
+     */
+    @LocalState
+    public final File getIndexFile() {
+        return indexFile.get().getAsFile();
+    }
+
+    /**
+     * Whether to hand every IR file to a single generator process, for generators which support
+     * {@value ConjureBatchGeneration#GENERATE_BATCH}, instead of running it once per file. Defaults to false, as there
+     * is no reliable way to detect support.
+     */
+    @Internal
+    public final boolean getBatchGeneration() {
+        return batchGeneration;
+    }
+
+    public final void setBatchGeneration(boolean batchGeneration) {
+        this.batchGeneration = batchGeneration;
+    }
+
+    final ConjureIrIndex getIndex() {
+        if (index == null) {
+            index = ConjureIrIndex.load(getIndexFile());
+        }
+        return index;
+    }
+
+    @Override
+    protected final void submitGeneration(List<List<String>> commandLines) {
+        ConjureIrIndex irIndex = getIndex();
+        List<List<String>> outOfDate = new ArrayList<>();
+        for (List<String> commandLine : commandLines) {
+            File irFile = sourceFileOf(commandLine);
+            if (irIndex.isUpToDate(irFile, generatorKey(commandLine), outputDirectoryFor(irFile))) {
+                getLogger().info("Skipping {} as its generated sources are up to date", irFile);
+            } else {
+                outOfDate.add(commandLine);
+            }
+        }
+
+        irIndex.invalidate();
+        if (outOfDate.size() > 1 && getBatchGeneration()) {
+            getLogger().info("Generating {} files with a single generator process", outOfDate.size());
+            List<String> batchCommandLine = ConjureBatchGeneration.batchCommandLine(
+                    getExecutablePath(), new File(getTemporaryDir(), "generate-batch.json"), outOfDate);
+            getWorkerExecutor().submit(ConjureBatchGenerationWorker.class, config -> {
+                config.setIsolationMode(IsolationMode.NONE);
+                config.setDisplayName(String.format("Running %s generator (%d files)", getName(), outOfDate.size()));
+                config.setParams(
+                        getExecutablePath(),
+                        getExecutableDistribution(),
+                        batchCommandLine,
+                        ImmutableList.copyOf(outOfDate),
+                        getLimitKey(),
+                        getProcessMetrics());
+            });
+        } else {
+            super.submitGeneration(outOfDate);
+        }
+        // The outputs can only be indexed once the workers have generated them, i.e. after the task has executed
+        unindexedGeneration = outOfDate;
+    }
+
+    private void indexGeneration(List<List<String>> commandLines) {
+        ConjureIrIndex irIndex = getIndex();
+        commandLines.forEach(commandLine -> {
+            File irFile = sourceFileOf(commandLine);
+            irIndex.recordGeneration(irFile, generatorKey(commandLine), outputDirectoryFor(irFile));
+        });
+        irIndex.write(getSource().getFiles());
+    }
+
+    private String generatorKey(List<String> commandLine) {
+        if (distributionHash == null) {
+            distributionHash = ConjureIrIndex.hashDistribution(getExecutableDistribution());
+        }
+        return ConjureIrIndex.generatorKey(distributionHash, getExecutablePath(), optionsOf(commandLine));
+    }
+
+    /**
+     * Indexes the IR files generated by this task once Gradle has finished executing it, which includes waiting for
+     * its workers. Nothing is indexed if generation failed, so the index stays {@link ConjureIrIndex#invalidate()
+     * invalidated}.
+     */
+    private final class IndexListener implements TaskExecutionListener {
+        @Override
+        public void beforeExecute(Task task) { }
+
+        @Override
+        public void afterExecute(Task task, TaskState state) {
+            if (task != ConjureLocalGenerateTask.this || unindexedGeneration == null) {
+                return;
+            }
+            List<List<String>> generated = unindexedGeneration;
+            unindexedGeneration = null;
+            if (state.getFailure() == null) {
+                indexGeneration(generated);
+            }
+        }
+    }
 
     @Override
     protected final File outputDirectoryFor(File file) {
@@ -23,7 +23,6 @@ import com.palantir.gradle.conjure.api.GeneratorOptions;
 import java.io.File;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
@@ -31,6 +30,8 @@ import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.util.GUtil;
 
 public final class ConjureLocalPlugin implements Plugin<Project> {
@@ -46,6 +47,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
+        ConjureMetrics.instrument(project);
         Configuration conjureIrConfiguration = project.getConfigurations().maybeCreate(CONJURE_CONFIGURATION);
         Configuration conjureGeneratorsConfiguration = project.getConfigurations().maybeCreate(
                 CONJURE_GENERATORS_CONFIGURATION_NAME);
@@ -53,15 +55,21 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         ConjureExtension extension = project.getExtensions()
                 .create(ConjureExtension.EXTENSION_NAME, ConjureExtension.class);
 
-        Task generateConjure = project.getTasks().create("generateConjure", task -> {
+        TaskProvider<Task> generateConjure = project.getTasks().register("generateConjure", task -> {
             task.setDescription("Generates code for all requested languages (for which there is a subproject) "
                     + "from remote Conjure definitions.");
             task.setGroup(ConjurePlugin.TASK_GROUP);
         });
         setupConjurePython(
-                project, immutableOptionsSupplier(extension::getPython), conjureIrConfiguration, generateConjure);
+                project,
+                ConjurePlugin.immutableOptionsProvider(project, extension::getPython),
+                conjureIrConfiguration,
+                generateConjure);
         setupConjureTypeScript(
-                project, immutableOptionsSupplier(extension::getTypescript), conjureIrConfiguration, generateConjure);
+                project,
+                ConjurePlugin.immutableOptionsProvider(project, extension::getTypescript),
+                conjureIrConfiguration,
+                generateConjure);
         setupGenericConjureProjects(
                 project, extension, conjureIrConfiguration, generateConjure, conjureGeneratorsConfiguration);
     }
@@ -70,7 +78,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
             Project project,
             ConjureExtension conjureExtension,
             Configuration conjureIrConfiguration,
-            Task generateConjure,
+            TaskProvider<Task> generateConjure,
             Configuration conjureGeneratorsConfiguration) {
         // Validating that each subproject has a corresponding generator.
         // We do this in afterEvaluate to ensure the configuration is populated.
@@ -109,36 +117,38 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
                     FileCollection matchingGeneratorDeps = conjureGeneratorsConfiguration.fileCollection(
                             dep -> dep.getName().equals(CONJURE_GENERATOR_DEP_PREFIX + subprojectName));
 
-                    ExtractExecutableTask extractConjureGeneratorTask = ExtractExecutableTask.createExtractTask(
-                            project,
-                            GUtil.toLowerCamelCase("extractConjure " + subprojectName),
-                            matchingGeneratorDeps,
-                            new File(subproject.getBuildDir(), "generator"),
-                            String.format("conjure-%s", subprojectName));
+                    TaskProvider<ExtractExecutableTask> extractConjureGeneratorTask =
+                            ExtractExecutableTask.createExtractTask(
+                                    project,
+                                    GUtil.toLowerCamelCase("extractConjure " + subprojectName),
+                                    matchingGeneratorDeps,
+                                    new File(subproject.getBuildDir(), "generator"),
+                                    String.format("conjure-%s", subprojectName));
 
-                    ConjureLocalGenerateTask conjureLocalGenerateTask = project
+                    TaskProvider<ConjureLocalGenerateGenericTask> conjureLocalGenerateTask = project
                             .getTasks()
-                            .create(GUtil.toLowerCamelCase("generate " + subprojectName),
+                            .register(GUtil.toLowerCamelCase("generate " + subprojectName),
                                     ConjureLocalGenerateGenericTask.class,
                                     task -> {
                                         task.setDescription(String.format(
                                                 "Generates %s files from remote Conjure definitions.", subprojectName));
                                         task.setGroup(ConjurePlugin.TASK_GROUP);
                                         task.setSource(conjureIrConfiguration);
-                                        task.setExecutablePath(extractConjureGeneratorTask::getExecutable);
+                                        task.setExecutablePath(
+                                                () -> extractConjureGeneratorTask.get().getExecutable());
                                         task.setOptions(() -> conjureExtension.getGenericOptions(subprojectName));
                                         task.setOutputDirectory(subproject.file(subprojectName));
                                         task.dependsOn(extractConjureGeneratorTask);
                                     });
-                    generateConjure.dependsOn(conjureLocalGenerateTask);
+                    generateConjure.configure(task -> task.dependsOn(conjureLocalGenerateTask));
                 });
     }
 
     private void setupConjurePython(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
+            Provider<GeneratorOptions> optionsProvider,
             Configuration conjureIrConfiguration,
-            Task generateConjure) {
+            TaskProvider<Task> generateConjure) {
         Project subproj = project.findProject(PYTHON_PROJECT_NAME);
         if (subproj == null) {
             return;
@@ -148,30 +158,31 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         File conjurePythonDir = new File(project.getBuildDir(), ConjurePlugin.CONJURE_PYTHON);
         project.getDependencies().add(ConjurePlugin.CONJURE_PYTHON, ConjurePlugin.CONJURE_PYTHON_BINARY);
 
-        ExtractExecutableTask extractConjurePythonTask = ExtractExecutableTask.createExtractTask(
+        TaskProvider<ExtractExecutableTask> extractConjurePythonTask = ExtractExecutableTask.createExtractTask(
                 project,
                 "extractConjurePython",
                 conjurePythonConfig,
                 conjurePythonDir,
                 "conjure-python");
 
-        project.getTasks().create("generatePython", ConjureLocalGenerateTask.class, task -> {
-            task.setDescription("Generates Python files from remote Conjure definitions.");
-            task.setGroup(ConjurePlugin.TASK_GROUP);
-            task.setSource(conjureIrConfiguration);
-            task.setExecutablePath(extractConjurePythonTask::getExecutable);
-            task.setOutputDirectory(subproj.file("python"));
-            task.setOptions(() -> optionsSupplier.get().addFlag("rawSource"));
-            task.dependsOn(extractConjurePythonTask);
-            generateConjure.dependsOn(task);
-        });
+        TaskProvider<ConjureLocalGenerateTask> generatePython = project.getTasks().register(
+                "generatePython", ConjureLocalGenerateTask.class, task -> {
+                    task.setDescription("Generates Python files from remote Conjure definitions.");
+                    task.setGroup(ConjurePlugin.TASK_GROUP);
+                    task.setSource(conjureIrConfiguration);
+                    task.setExecutablePath(() -> extractConjurePythonTask.get().getExecutable());
+                    task.setOutputDirectory(subproj.file("python"));
+                    task.setOptions(optionsProvider.map(options -> options.addFlag("rawSource")));
+                    task.dependsOn(extractConjurePythonTask);
+                });
+        generateConjure.configure(task -> task.dependsOn(generatePython));
     }
 
     private void setupConjureTypeScript(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
+            Provider<GeneratorOptions> optionsProvider,
             Configuration conjureIrConfiguration,
-            Task generateConjure) {
+            TaskProvider<Task> generateConjure) {
         Project subproj = project.findProject(TYPESCRIPT_PROJECT_NAME);
         if (subproj == null) {
             return;
@@ -183,26 +194,23 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         project.getDependencies().add(
                 ConjurePlugin.CONJURE_TYPESCRIPT, ConjurePlugin.CONJURE_TYPESCRIPT_BINARY);
 
-        ExtractExecutableTask extractConjureTypeScriptTask = ExtractExecutableTask.createExtractTask(
+        TaskProvider<ExtractExecutableTask> extractConjureTypeScriptTask = ExtractExecutableTask.createExtractTask(
                 project,
                 "extractConjureTypeScript",
                 conjureTypeScriptConfig,
                 conjureTypescriptDir,
                 "conjure-typescript");
 
-        project.getTasks().create("generateTypeScript", ConjureLocalGenerateTask.class, task -> {
-            task.setDescription("Generate Typescript bindings from remote Conjure definitions.");
-            task.setGroup(ConjurePlugin.TASK_GROUP);
-            task.setSource(conjureIrConfiguration);
-            task.setExecutablePath(extractConjureTypeScriptTask::getExecutable);
-            task.setOptions(() -> optionsSupplier.get().addFlag("rawSource"));
-            task.setOutputDirectory(srcDirectory);
-            task.dependsOn(extractConjureTypeScriptTask);
-            generateConjure.dependsOn(task);
-        });
-    }
-
-    private static Supplier<GeneratorOptions> immutableOptionsSupplier(Supplier<GeneratorOptions> supplier) {
-        return () -> new GeneratorOptions(supplier.get());
+        TaskProvider<ConjureLocalGenerateTask> generateTypeScript = project.getTasks().register(
+                "generateTypeScript", ConjureLocalGenerateTask.class, task -> {
+                    task.setDescription("Generate Typescript bindings from remote Conjure definitions.");
+                    task.setGroup(ConjurePlugin.TASK_GROUP);
+                    task.setSource(conjureIrConfiguration);
+                    task.setExecutablePath(() -> extractConjureTypeScriptTask.get().getExecutable());
+                    task.setOptions(optionsProvider.map(options -> options.addFlag("rawSource")));
+                    task.setOutputDirectory(srcDirectory);
+                    task.dependsOn(extractConjureTypeScriptTask);
+                });
+        generateConjure.configure(task -> task.dependsOn(generateTypeScript));
     }
 }
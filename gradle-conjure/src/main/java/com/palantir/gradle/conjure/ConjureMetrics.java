@@ -0,0 +1,248 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.util.GFileUtils;
+
+/**
+ * Opt-in reports of where the time of conjure tasks goes. For every instrumented task that runs, its report directory
+ * {@code build/reports/conjure/<task>/} contains a {@value #TASK_REPORT} with the task's wall time, outcome and the
+ * number and size of the output files it wrote, along with one report per process it ran from
+ * {@link ProcessMetricsReporter}. At the end of the build all of these are summarized in a
+ * {@link ConjureBuildReport}.
+ */
+final class ConjureMetrics {
+    /** Project property which enables writing metrics reports. */
+    static final String METRICS_PROPERTY = "com.palantir.conjure.metrics";
+    static final String TASK_REPORT = "task.json";
+    static final String EXTRACTION = "extraction";
+    static final String GENERATION = "generation";
+
+    private static final ImmutableList<Class<?>> INSTRUMENTED_TASK_TYPES = ImmutableList.of(
+            CompileIrTask.class,
+            ConjureGeneratorTask.class,
+            ExtractExecutableTask.class,
+            InstallTypeScriptDependenciesTask.class,
+            CompileTypeScriptTask.class,
+            BuildWheelTask.class);
+
+    private ConjureMetrics() { }
+
+    static boolean isEnabled(Project project) {
+        Object value = project.findProperty(METRICS_PROPERTY);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    static File reportDirectory(File buildDirectory, String taskName) {
+        return new File(buildDirectory, "reports/conjure/" + taskName);
+    }
+
+    /** The reporter which the given task should run its processes with, resolved against the current build dir. */
+    static Provider<ProcessMetricsReporter> processReporter(Task task) {
+        boolean enabled = isEnabled(task.getProject());
+        String taskPath = task.getPath();
+        String taskName = task.getName();
+        return task.getProject().getLayout().getBuildDirectory().map(buildDirectory -> new ProcessMetricsReporter(
+                taskPath, enabled ? reportDirectory(buildDirectory.getAsFile(), taskName) : null));
+    }
+
+    /** Writes task reports for the instrumented tasks of {@code project}, if metrics are enabled. */
+    static void instrument(Project project) {
+        if (isEnabled(project)) {
+            project.getGradle().getTaskGraph().addTaskExecutionListener(new TaskMetricsListener(project));
+        }
+    }
+
+    /** Writes {@code report} as JSON to a new file in {@code directory} whose name starts with {@code prefix}. */
+    static void writeReport(File directory, String prefix, Map<String, Object> report) {
+        try {
+            Files.createDirectories(directory.toPath());
+            Path reportFile = Files.createTempFile(directory.toPath(), prefix, ".json");
+            ObjectMappers.OBJECT_MAPPER.writeValue(reportFile.toFile(), report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write metrics report to " + directory, e);
+        }
+    }
+
+    private static final class TaskMetricsListener implements TaskExecutionListener {
+        private final Project project;
+        private final ConjureBuildReport buildReport;
+        private final Map<Task, Execution> executions = new ConcurrentHashMap<>();
+
+        TaskMetricsListener(Project project) {
+            this.project = project;
+            this.buildReport = ConjureBuildReport.forBuild(project);
+        }
+
+        @Override
+        public void beforeExecute(Task task) {
+            if (task.getProject() != project || INSTRUMENTED_TASK_TYPES.stream().noneMatch(t -> t.isInstance(task))) {
+                return;
+            }
+            File reportDirectory = reportDirectory(project.getBuildDir(), task.getName());
+            GFileUtils.deleteDirectory(reportDirectory);
+            executions.put(task, new Execution(reportDirectory, snapshotOutputs(task)));
+        }
+
+        @Override
+        public void afterExecute(Task task, TaskState state) {
+            Execution execution = executions.remove(task);
+            if (execution == null) {
+                return;
+            }
+            long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - execution.start);
+
+            long filesWritten = 0;
+            long bytesWritten = 0;
+            for (Map.Entry<File, FileState> output : snapshotOutputs(task).entrySet()) {
+                if (!output.getValue().equals(execution.outputs.get(output.getKey()))) {
+                    filesWritten++;
+                    bytesWritten += output.getValue().length;
+                }
+            }
+
+            List<JsonNode> processes = new ArrayList<>();
+            File[] processReports = execution.reportDirectory.listFiles((dir, name) ->
+                    name.startsWith(ProcessMetricsReporter.PROCESS_REPORT_PREFIX));
+            for (File processReport : processReports == null ? new File[0] : processReports) {
+                processes.add(readReport(processReport));
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("task", task.getPath());
+            report.put("type", task.getClass().getName());
+            report.put("category", category(task));
+            report.put("outcome", state.getSkipped() ? state.getSkipMessage() : "EXECUTED");
+            report.put("succeeded", state.getFailure() == null);
+            report.put("dependencies", task.getTaskDependencies().getDependencies(task).stream()
+                    .map(Task::getPath)
+                    .sorted()
+                    .collect(Collectors.toList()));
+            report.put("startTime", execution.startTime);
+            report.put("wallTimeMillis", wallTimeMillis);
+            report.put("filesWritten", filesWritten);
+            report.put("bytesWritten", bytesWritten);
+            report.put("processes", processes.size());
+            report.put("processCpuTimeMillis",
+                    processes.stream().mapToLong(process -> process.path("cpuTimeMillis").asLong(0)).sum());
+            try {
+                Files.createDirectories(execution.reportDirectory.toPath());
+                ObjectMappers.OBJECT_MAPPER.writeValue(new File(execution.reportDirectory, TASK_REPORT), report);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write metrics report for " + task.getPath(), e);
+            }
+            buildReport.add(ObjectMappers.OBJECT_MAPPER.valueToTree(report), processes);
+        }
+
+        private static String category(Task task) {
+            if (task instanceof ExtractExecutableTask) {
+                return EXTRACTION;
+            } else if (task instanceof CompileIrTask || task instanceof ConjureGeneratorTask) {
+                return GENERATION;
+            } else {
+                return "other";
+            }
+        }
+
+        private static Map<File, FileState> snapshotOutputs(Task task) {
+            Map<File, FileState> snapshot = new HashMap<>();
+            for (File root : task.getOutputs().getFiles()) {
+                if (!root.exists()) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(root.toPath())) {
+                    files.filter(Files::isRegularFile).forEach(path -> {
+                        File file = path.toFile();
+                        snapshot.put(file, new FileState(file.length(), file.lastModified()));
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to list outputs of " + task.getPath(), e);
+                }
+            }
+            return snapshot;
+        }
+
+        private static JsonNode readReport(File report) {
+            try {
+                return ObjectMappers.OBJECT_MAPPER.readTree(report);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + report, e);
+            }
+        }
+    }
+
+    private static final class Execution {
+        private final long startTime = System.currentTimeMillis();
+        private final long start = System.nanoTime();
+        private final File reportDirectory;
+        private final Map<File, FileState> outputs;
+
+        Execution(File reportDirectory, Map<File, FileState> outputs) {
+            this.reportDirectory = reportDirectory;
+            this.outputs = outputs;
+        }
+    }
+
+    private static final class FileState {
+        private final long length;
+        private final long lastModified;
+
+        FileState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            FileState that = (FileState) other;
+            return length == that.length && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(length, lastModified);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.palantir.gradle.conjure.api.ConjureExtension;
 import com.palantir.gradle.conjure.api.ConjureProductDependenciesExtension;
@@ -23,10 +24,14 @@ import com.palantir.gradle.conjure.api.GeneratorOptions;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
-import org.gradle.api.DefaultTask;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
@@ -35,12 +40,14 @@ import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginConvention;
-import org.gradle.api.tasks.Copy;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Exec;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.jvm.tasks.Jar;
 import org.gradle.plugins.ide.eclipse.EclipsePlugin;
+import org.gradle.plugins.ide.eclipse.GenerateEclipseClasspath;
+import org.gradle.plugins.ide.idea.GenerateIdeaModule;
 import org.gradle.plugins.ide.idea.IdeaPlugin;
-import org.gradle.util.GFileUtils;
 
 public final class ConjurePlugin implements Plugin<Project> {
 
@@ -72,6 +79,11 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     static final String CONJURE_JAVA_LIB_DEP = "com.palantir.conjure.java:conjure-lib";
 
+    /**
+     * Project property which opts into running conjure-java once for all Java subprojects, rather than once for each.
+     */
+    static final String JAVA_SINGLE_PASS_PROPERTY = "com.palantir.conjure.java.single-pass";
+
     private final org.gradle.api.internal.file.SourceDirectorySetFactory sourceDirectorySetFactory;
 
     @Inject
@@ -81,6 +93,7 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
+        ConjureMetrics.instrument(project);
         project.getPlugins().apply(BasePlugin.class);
         ConjureExtension conjureExtension = project.getExtensions()
                 .create(ConjureExtension.EXTENSION_NAME, ConjureExtension.class);
@@ -88,32 +101,34 @@ public final class ConjurePlugin implements Plugin<Project> {
                 .create(ConjureProductDependenciesExtension.EXTENSION_NAME, ConjureProductDependenciesExtension.class);
 
         // Set up conjure compile task
-        Task compileConjure = project.getTasks().create("compileConjure", DefaultTask.class);
-        compileConjure.setDescription("Generates code for your API definitions in src/main/conjure/**/*.yml");
-        compileConjure.setGroup(TASK_GROUP);
+        TaskProvider<Task> compileConjure = project.getTasks().register("compileConjure", task -> {
+            task.setDescription("Generates code for your API definitions in src/main/conjure/**/*.yml");
+            task.setGroup(TASK_GROUP);
+        });
         applyDependencyForIdeTasks(project, compileConjure);
 
-        Copy copyConjureSourcesTask = getConjureSources(project, sourceDirectorySetFactory);
-        Task compileIrTask = createCompileIrTask(project, copyConjureSourcesTask);
-        GenerateConjureServiceDependenciesTask productDependencyTask = project.getTasks().create(
+        TaskProvider<CopyConjureSourcesTask> copyConjureSourcesTask =
+                getConjureSources(project, sourceDirectorySetFactory);
+        TaskProvider<CompileIrTask> compileIrTask = createCompileIrTask(project, copyConjureSourcesTask);
+        TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask = project.getTasks().register(
                 "generateConjureServiceDependencies", GenerateConjureServiceDependenciesTask.class, task -> {
                     task.setConjureServiceDependencies(conjureProductDependenciesExtension::getProductDependencies);
                 });
 
         setupConjureJavaProject(
                 project,
-                immutableOptionsSupplier(conjureExtension::getJava),
+                immutableOptionsProvider(project, conjureExtension::getJava),
                 compileConjure,
                 compileIrTask,
                 productDependencyTask);
         setupConjurePythonProject(
                 project,
-                immutableOptionsSupplier(conjureExtension::getPython),
+                immutableOptionsProvider(project, conjureExtension::getPython),
                 compileConjure,
                 compileIrTask);
         setupConjureTypescriptProject(
                 project,
-                immutableOptionsSupplier(conjureExtension::getTypescript),
+                immutableOptionsProvider(project, conjureExtension::getTypescript),
                 compileConjure,
                 compileIrTask,
                 productDependencyTask);
@@ -121,81 +136,150 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     private static void setupConjureJavaProject(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
-            Task compileConjure,
-            Task compileIrTask,
-            GenerateConjureServiceDependenciesTask productDependencyTask) {
+            Provider<GeneratorOptions> optionsProvider,
+            TaskProvider<Task> compileConjure,
+            TaskProvider<CompileIrTask> compileIrTask,
+            TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask) {
         Set<String> javaProjectSuffixes = ImmutableSet.of(
                 JAVA_OBJECTS_SUFFIX, JAVA_JERSEY_SUFFIX, JAVA_RETROFIT_SUFFIX);
         if (javaProjectSuffixes.stream().anyMatch(suffix -> project.findProject(project.getName() + suffix) != null)) {
             Configuration conjureJavaConfig = project.getConfigurations().maybeCreate(CONJURE_JAVA);
             File conjureJavaDir = new File(project.getBuildDir(), CONJURE_JAVA);
             project.getDependencies().add(CONJURE_JAVA, CONJURE_JAVA_BINARY);
-            ExtractExecutableTask extractJavaTask = ExtractExecutableTask.createExtractTask(
+            TaskProvider<ExtractExecutableTask> extractJavaTask = ExtractExecutableTask.createExtractTask(
                     project, "extractConjureJava", conjureJavaConfig, conjureJavaDir, "conjure-java");
 
-            Task checkVersions = project.getTasks().create("checkConjureJavaVersions", CheckConjureJavaVersions.class);
-            extractJavaTask.dependsOn(checkVersions);
+            TaskProvider<CheckConjureJavaVersions> checkVersions = project.getTasks().register(
+                    "checkConjureJavaVersions", CheckConjureJavaVersions.class, task -> {
+                        task.setConjureJavaConfiguration(conjureJavaConfig);
+                        JAVA_PROJECT_SUFFIXES.stream()
+                                .map(suffix -> project.findProject(project.getName() + suffix))
+                                .filter(Objects::nonNull)
+                                .forEach(subproj -> task.addConjureJavaLibConfiguration(
+                                        subproj.getConfigurations().getByName("compile")));
+                    });
+            extractJavaTask.configure(task -> task.dependsOn(checkVersions));
+
+            Optional<TaskProvider<CompileConjureJavaTask>> singlePassTask = isJavaSinglePassEnabled(project)
+                    ? Optional.of(createSinglePassJavaTask(project, optionsProvider, compileIrTask, extractJavaTask))
+                    : Optional.empty();
+            JavaGeneratorTaskFactory taskFactory = (taskName, flag, subproj) -> createJavaGeneratorTask(
+                    project, taskName, flag, subproj, optionsProvider, compileIrTask, extractJavaTask, singlePassTask);
 
             setupConjureObjectsProject(
                     project,
-                    optionsSupplier,
-                    compileConjure,
-                    compileIrTask,
-                    extractJavaTask);
+                    taskFactory,
+                    compileConjure);
             setupConjureRetrofitProject(
                     project,
-                    optionsSupplier,
+                    taskFactory,
                     compileConjure,
-                    compileIrTask,
-                    productDependencyTask,
-                    extractJavaTask);
+                    productDependencyTask);
             setupConjureJerseyProject(
                     project,
-                    optionsSupplier,
+                    taskFactory,
                     compileConjure,
-                    compileIrTask,
-                    productDependencyTask,
-                    extractJavaTask);
+                    productDependencyTask);
         }
     }
 
+    private static boolean isJavaSinglePassEnabled(Project project) {
+        Object value = project.findProperty(JAVA_SINGLE_PASS_PROPERTY);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Registers the task which runs conjure-java once with the flags of every Java subproject that exists.
+     */
+    private static TaskProvider<CompileConjureJavaTask> createSinglePassJavaTask(
+            Project project,
+            Provider<GeneratorOptions> optionsProvider,
+            TaskProvider<CompileIrTask> compileIrTask,
+            TaskProvider<ExtractExecutableTask> extractJavaTask) {
+        List<String> flags = ImmutableMap.of(
+                JAVA_OBJECTS_SUFFIX, "objects", JAVA_JERSEY_SUFFIX, "jersey", JAVA_RETROFIT_SUFFIX, "retrofit")
+                .entrySet().stream()
+                .filter(entry -> project.findProject(project.getName() + entry.getKey()) != null)
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+
+        TaskProvider<CompileConjureJavaTask> singlePassTask = project.getTasks().register(
+                "compileConjureJava", CompileConjureJavaTask.class, task -> {
+                    task.setDescription("Generates Java sources for all Java subprojects in a single pass.");
+                    task.setGroup(TASK_GROUP);
+                    task.setExecutablePath(() -> extractJavaTask.get().getExecutable());
+                    task.setOptions(optionsProvider.map(options -> {
+                        flags.forEach(options::addFlag);
+                        return options;
+                    }));
+                    task.setOutputDirectory(new File(project.getBuildDir(), "generated-conjure-java"));
+                    task.setSource(compileIrTask);
+                    task.dependsOn(extractJavaTask);
+                });
+        addCleanTaskDependency(project, "cleanCompileConjureJava");
+        return singlePassTask;
+    }
+
+    /**
+     * Registers the task which fills a Java subproject's generated source directory. This either runs conjure-java
+     * with just the subproject's flag, or, in single pass mode, copies the subproject's share of the single pass
+     * output.
+     */
+    private static TaskProvider<? extends Task> createJavaGeneratorTask(
+            Project project,
+            String taskName,
+            String flag,
+            Project subproj,
+            Provider<GeneratorOptions> optionsProvider,
+            TaskProvider<CompileIrTask> compileIrTask,
+            TaskProvider<ExtractExecutableTask> extractJavaTask,
+            Optional<TaskProvider<CompileConjureJavaTask>> singlePassTask) {
+        if (singlePassTask.isPresent()) {
+            return project.getTasks().register(taskName, RouteConjureJavaSourcesTask.class, task -> {
+                task.setFlag(flag);
+                task.setGeneratedDirectory(singlePassTask.get().get().getOutputDirectory());
+                task.setIrFiles(compileIrTask.get().getOutputs().getFiles());
+                task.setOutputDirectory(subproj.file(JAVA_GENERATED_SOURCE_DIRNAME));
+                task.dependsOn(singlePassTask.get());
+            });
+        }
+
+        return project.getTasks().register(taskName, ConjureGeneratorTask.class, task -> {
+            task.setExecutablePath(() -> extractJavaTask.get().getExecutable());
+            task.setOptions(optionsProvider.map(options -> options.addFlag(flag)));
+            task.setOutputDirectory(subproj.file(JAVA_GENERATED_SOURCE_DIRNAME));
+            task.setSource(compileIrTask);
+            task.dependsOn(extractJavaTask);
+        });
+    }
+
     private static void setupConjureObjectsProject(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
-            Task compileConjure,
-            Task compileIrTask,
-            ExtractExecutableTask extractJavaTask) {
+            JavaGeneratorTaskFactory taskFactory,
+            TaskProvider<Task> compileConjure) {
 
         String objectsProjectName = project.getName() + JAVA_OBJECTS_SUFFIX;
         if (project.findProject(objectsProjectName) != null) {
             project.project(objectsProjectName, subproj -> {
                 subproj.getPluginManager().apply(JavaPlugin.class);
                 addGeneratedToMainSourceSet(subproj);
-                project.getTasks().create(
-                        "compileConjureObjects",
-                        ConjureGeneratorTask.class,
-                        task -> {
-                            task.setDescription("Generates Java POJOs from your Conjure definitions.");
-                            task.setGroup(TASK_GROUP);
-                            task.setExecutablePath(extractJavaTask::getExecutable);
-                            task.setOptions(() -> optionsSupplier.get().addFlag("objects"));
-                            task.setOutputDirectory(subproj.file(JAVA_GENERATED_SOURCE_DIRNAME));
-                            task.setSource(compileIrTask);
+                TaskProvider<WriteGitignoreTask> gitignoreTask = createWriteGitignoreTask(
+                        subproj,
+                        "gitignoreConjureObjects",
+                        subproj.getProjectDir(),
+                        JAVA_GITIGNORE_CONTENTS);
+                TaskProvider<? extends Task> compileConjureObjects =
+                        taskFactory.create("compileConjureObjects", "objects", subproj);
+                compileConjureObjects.configure(task -> {
+                    task.setDescription("Generates Java POJOs from your Conjure definitions.");
+                    task.setGroup(TASK_GROUP);
+                    task.dependsOn(gitignoreTask);
+                });
 
-                            compileConjure.dependsOn(task);
-                            subproj.getTasks().getByName("compileJava").dependsOn(task);
-                            applyDependencyForIdeTasks(subproj, task);
-                            task.dependsOn(
-                                    createWriteGitignoreTask(
-                                            subproj,
-                                            "gitignoreConjureObjects",
-                                            subproj.getProjectDir(),
-                                            JAVA_GITIGNORE_CONTENTS));
-                            task.dependsOn(extractJavaTask);
-                        });
-                Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-                cleanTask.dependsOn(project.getTasks().findByName("cleanCompileConjureObjects"));
+                compileConjure.configure(task -> task.dependsOn(compileConjureObjects));
+                subproj.getTasks().named("compileJava").configure(task -> task.dependsOn(compileConjureObjects));
+                applyDependencyForIdeTasks(subproj, compileConjureObjects);
+                addCleanTaskDependency(project, "cleanCompileConjureObjects");
                 subproj.getDependencies().add("compile", "com.palantir.conjure.java:conjure-lib");
                 subproj.getDependencies().add("compileOnly", "javax.annotation:javax.annotation-api");
             });
@@ -204,11 +288,9 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     private static void setupConjureRetrofitProject(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
-            Task compileConjure,
-            Task compileIrTask,
-            GenerateConjureServiceDependenciesTask productDependencyTask,
-            ExtractExecutableTask extractJavaTask) {
+            JavaGeneratorTaskFactory taskFactory,
+            TaskProvider<Task> compileConjure,
+            TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask) {
 
         String retrofitProjectName = project.getName() + JAVA_RETROFIT_SUFFIX;
         if (project.findProject(retrofitProjectName) != null) {
@@ -221,34 +303,33 @@ public final class ConjurePlugin implements Plugin<Project> {
             project.project(retrofitProjectName, subproj -> {
                 subproj.getPluginManager().apply(JavaPlugin.class);
                 addGeneratedToMainSourceSet(subproj);
-                project.getTasks().create("compileConjureRetrofit", ConjureGeneratorTask.class, task -> {
+                TaskProvider<WriteGitignoreTask> gitignoreTask = createWriteGitignoreTask(
+                        subproj,
+                        "gitignoreConjureRetrofit",
+                        subproj.getProjectDir(),
+                        JAVA_GITIGNORE_CONTENTS);
+                TaskProvider<? extends Task> compileConjureRetrofit =
+                        taskFactory.create("compileConjureRetrofit", "retrofit", subproj);
+                compileConjureRetrofit.configure(task -> {
                     task.setDescription(
                             "Generates Retrofit interfaces for use on the client-side from your Conjure definitions.");
                     task.setGroup(TASK_GROUP);
-                    task.setExecutablePath(extractJavaTask::getExecutable);
-                    task.setOptions(() -> optionsSupplier.get().addFlag("retrofit"));
-                    task.setOutputDirectory(subproj.file(JAVA_GENERATED_SOURCE_DIRNAME));
-                    task.setSource(compileIrTask);
-
-                    compileConjure.dependsOn(task);
-                    subproj.getTasks().getByName("compileJava").dependsOn(task);
-                    applyDependencyForIdeTasks(subproj, task);
-                    task.dependsOn(createWriteGitignoreTask(
-                            subproj,
-                            "gitignoreConjureRetrofit",
-                            subproj.getProjectDir(),
-                            JAVA_GITIGNORE_CONTENTS));
-                    task.dependsOn(extractJavaTask);
+                    task.dependsOn(gitignoreTask);
                     task.dependsOn(productDependencyTask);
                 });
 
-                compileConjure.dependsOn(createJavaProductDependenciesTask(
-                        project,
-                        subproj,
-                        "conjureRetrofitProductDependency",
-                        productDependencyTask));
-                Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-                cleanTask.dependsOn(project.getTasks().findByName("cleanCompileConjureRetrofit"));
+                compileConjure.configure(task -> task.dependsOn(compileConjureRetrofit));
+                subproj.getTasks().named("compileJava").configure(task -> task.dependsOn(compileConjureRetrofit));
+                applyDependencyForIdeTasks(subproj, compileConjureRetrofit);
+
+                TaskProvider<ConjureJavaServiceDependenciesTask> productDependencies =
+                        createJavaProductDependenciesTask(
+                                project,
+                                subproj,
+                                "conjureRetrofitProductDependency",
+                                productDependencyTask);
+                compileConjure.configure(task -> task.dependsOn(productDependencies));
+                addCleanTaskDependency(project, "cleanCompileConjureRetrofit");
                 subproj.getDependencies().add("compile", project.findProject(objectsProjectName));
                 subproj.getDependencies().add("compile", "com.squareup.retrofit2:retrofit");
                 subproj.getDependencies().add("compileOnly", "javax.annotation:javax.annotation-api");
@@ -258,11 +339,9 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     private static void setupConjureJerseyProject(
             Project project,
-            Supplier<GeneratorOptions> optionsSupplier,
-            Task compileConjure,
-            Task compileIrTask,
-            GenerateConjureServiceDependenciesTask productDependencyTask,
-            ExtractExecutableTask extractJavaTask) {
+            JavaGeneratorTaskFactory taskFactory,
+            TaskProvider<Task> compileConjure,
+            TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask) {
 
         String jerseyProjectName = project.getName() + JAVA_JERSEY_SUFFIX;
         if (project.findProject(jerseyProjectName) != null) {
@@ -275,35 +354,33 @@ public final class ConjurePlugin implements Plugin<Project> {
             project.project(jerseyProjectName, subproj -> {
                 subproj.getPluginManager().apply(JavaPlugin.class);
                 addGeneratedToMainSourceSet(subproj);
-                project.getTasks().create("compileConjureJersey", ConjureGeneratorTask.class, task -> {
+                TaskProvider<WriteGitignoreTask> gitignoreTask = createWriteGitignoreTask(
+                        subproj,
+                        "gitignoreConjureJersey",
+                        subproj.getProjectDir(),
+                        JAVA_GITIGNORE_CONTENTS);
+                TaskProvider<? extends Task> compileConjureJersey =
+                        taskFactory.create("compileConjureJersey", "jersey", subproj);
+                compileConjureJersey.configure(task -> {
                     task.setDescription("Generates Jersey interfaces from your Conjure definitions "
                             + "(for use on both the client-side and server-side).");
                     task.setGroup(TASK_GROUP);
-                    task.setExecutablePath(extractJavaTask::getExecutable);
-                    task.setOptions(() -> optionsSupplier.get().addFlag("jersey"));
-                    task.setOutputDirectory(subproj.file(JAVA_GENERATED_SOURCE_DIRNAME));
-                    task.setSource(compileIrTask);
-
-                    compileConjure.dependsOn(task);
-                    subproj.getTasks().getByName("compileJava").dependsOn(task);
-                    applyDependencyForIdeTasks(subproj, task);
-                    task.dependsOn(
-                            createWriteGitignoreTask(
-                                    subproj,
-                                    "gitignoreConjureJersey",
-                                    subproj.getProjectDir(),
-                                    JAVA_GITIGNORE_CONTENTS));
-                    task.dependsOn(extractJavaTask);
+                    task.dependsOn(gitignoreTask);
                     task.dependsOn(productDependencyTask);
                 });
 
-                compileConjure.dependsOn(createJavaProductDependenciesTask(
-                        project,
-                        subproj,
-                        "conjureJerseyProductDependency",
-                        productDependencyTask));
-                Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-                cleanTask.dependsOn(project.getTasks().findByName("cleanCompileConjureJersey"));
+                compileConjure.configure(task -> task.dependsOn(compileConjureJersey));
+                subproj.getTasks().named("compileJava").configure(task -> task.dependsOn(compileConjureJersey));
+                applyDependencyForIdeTasks(subproj, compileConjureJersey);
+
+                TaskProvider<ConjureJavaServiceDependenciesTask> productDependencies =
+                        createJavaProductDependenciesTask(
+                                project,
+                                subproj,
+                                "conjureJerseyProductDependency",
+                                productDependencyTask);
+                compileConjure.configure(task -> task.dependsOn(productDependencies));
+                addCleanTaskDependency(project, "cleanCompileConjureJersey");
                 subproj.getDependencies().add("compile", project.findProject(objectsProjectName));
                 subproj.getDependencies().add("compile", "javax.ws.rs:javax.ws.rs-api");
                 subproj.getDependencies().add("compileOnly", "javax.annotation:javax.annotation-api");
@@ -313,10 +390,10 @@ public final class ConjurePlugin implements Plugin<Project> {
 
     private static void setupConjureTypescriptProject(
             Project project,
-            Supplier<GeneratorOptions> options,
-            Task compileConjure,
-            Task compileIrTask,
-            GenerateConjureServiceDependenciesTask productDependencyTask) {
+            Provider<GeneratorOptions> options,
+            TaskProvider<Task> compileConjure,
+            TaskProvider<CompileIrTask> compileIrTask,
+            TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask) {
         String typescriptProjectName = project.getName() + "-typescript";
         if (project.findProject(typescriptProjectName) != null) {
             Configuration conjureTypeScriptConfig = project.getConfigurations().maybeCreate(CONJURE_TYPESCRIPT);
@@ -326,65 +403,82 @@ public final class ConjurePlugin implements Plugin<Project> {
                 File srcDirectory = subproj.file("src");
                 project.getDependencies().add("conjureTypeScript", CONJURE_TYPESCRIPT_BINARY);
 
-                ExtractExecutableTask extractConjureTypeScriptTask = ExtractExecutableTask.createExtractTask(
-                        project,
-                        "extractConjureTypeScript",
-                        conjureTypeScriptConfig,
-                        conjureTypescriptDir,
-                        "conjure-typescript");
-                Task compileConjureTypeScript = project.getTasks().create("compileConjureTypeScript",
-                        CompileConjureTypeScriptTask.class, task -> {
+                TaskProvider<ExtractExecutableTask> extractConjureTypeScriptTask =
+                        ExtractExecutableTask.createExtractTask(
+                                project,
+                                "extractConjureTypeScript",
+                                conjureTypeScriptConfig,
+                                conjureTypescriptDir,
+                                "conjure-typescript");
+                TaskProvider<WriteGitignoreTask> gitignoreTask = createWriteGitignoreTask(
+                        subproj, "gitignoreConjureTypeScript", subproj.getProjectDir(), "/src/\n");
+                TaskProvider<CompileConjureTypeScriptTask> compileConjureTypeScript = project.getTasks().register(
+                        "compileConjureTypeScript", CompileConjureTypeScriptTask.class, task -> {
                             task.setDescription(
                                     "Generates TypeScript files and a package.json from your Conjure definitions.");
                             task.setGroup(TASK_GROUP);
                             task.setSource(compileIrTask);
-                            task.setExecutablePath(extractConjureTypeScriptTask::getExecutable);
-                            task.setProductDependencyFile(productDependencyTask.getOutputFile());
-                            task.setOutputDirectory(srcDirectory);
+                            task.setExecutablePath(() -> extractConjureTypeScriptTask.get().getExecutable());
+                            task.setProductDependencyFile(productDependencyTask.get().getOutputFile());
+                            task.setOutputDirectory(new File(project.getBuildDir(), "generated-conjure-typescript"));
                             task.setOptions(options);
-                            compileConjure.dependsOn(task);
-                            task.dependsOn(
-                                    createWriteGitignoreTask(
-                                            subproj, "gitignoreConjureTypeScript", subproj.getProjectDir(),
-                                            "/src/\n"));
                             task.dependsOn(extractConjureTypeScriptTask);
                             task.dependsOn(productDependencyTask);
                         });
-
-                Task installTypeScriptDependencies = project.getTasks().create("installTypeScriptDependencies",
-                        Exec.class, task -> {
-                            task.commandLine("npm", "install", "--no-package-lock");
-                            task.workingDir(srcDirectory);
+                TaskProvider<SyncConjureTypeScriptTask> syncConjureTypeScript = project.getTasks().register(
+                        "syncConjureTypeScript", SyncConjureTypeScriptTask.class, task -> {
+                            task.setDescription(
+                                    "Copies the generated TypeScript package into the TypeScript project.");
+                            task.setGroup(TASK_GROUP);
+                            task.setGeneratedDirectory(compileConjureTypeScript.get().getOutputDirectory());
+                            task.setPackageDirectory(srcDirectory);
+                            task.dependsOn(gitignoreTask);
                             task.dependsOn(compileConjureTypeScript);
-                            task.getInputs().file(new File(srcDirectory, "package.json"));
-                            task.getOutputs().dir(new File(srcDirectory, "node_modules"));
                         });
-                Task compileTypeScript = project.getTasks().create("compileTypeScript", Exec.class, task -> {
-                    task.setDescription(
-                            "Runs `npm tsc` to compile generated TypeScript files into JavaScript files.");
-                    task.setGroup(TASK_GROUP);
-                    task.commandLine("npm", "run-script", "build");
-                    task.workingDir(srcDirectory);
-                    task.dependsOn(installTypeScriptDependencies);
-                });
-                Task publishTypeScript = project.getTasks().create("publishTypeScript", Exec.class, task -> {
-                    task.setDescription("Runs `npm publish` to publish a TypeScript package "
-                            + "generated from your Conjure definitions.");
-                    task.setGroup(TASK_GROUP);
-                    task.commandLine("npm", "publish");
-                    task.workingDir(srcDirectory);
-                    task.dependsOn(compileConjureTypeScript);
-                    task.dependsOn(compileTypeScript);
-                });
+                // Running the generator on its own still updates the package
+                compileConjureTypeScript.configure(task -> task.finalizedBy(syncConjureTypeScript));
+                compileConjure.configure(task -> task.dependsOn(syncConjureTypeScript));
+
+                TaskProvider<InstallTypeScriptDependenciesTask> installTypeScriptDependencies =
+                        project.getTasks().register(
+                                "installTypeScriptDependencies", InstallTypeScriptDependenciesTask.class, task -> {
+                                    task.setDescription("Runs `npm install` for the generated TypeScript package.");
+                                    task.setGroup(TASK_GROUP);
+                                    task.setPackageDirectory(srcDirectory);
+                                    task.dependsOn(syncConjureTypeScript);
+                                });
+                TaskProvider<CompileTypeScriptTask> compileTypeScript = project.getTasks().register(
+                        "compileTypeScript", CompileTypeScriptTask.class, task -> {
+                            task.setDescription(
+                                    "Runs `npm tsc` to compile generated TypeScript files into JavaScript files.");
+                            task.setGroup(TASK_GROUP);
+                            task.setPackageDirectory(srcDirectory);
+                            task.setBuildInfoFile(new File(project.getBuildDir(), "typescript/tsconfig.tsbuildinfo"));
+                            task.dependsOn(installTypeScriptDependencies);
+                        });
+                TaskProvider<Exec> publishTypeScript = project.getTasks().register(
+                        "publishTypeScript", Exec.class, task -> {
+                            task.setDescription("Runs `npm publish` to publish a TypeScript package "
+                                    + "generated from your Conjure definitions.");
+                            task.setGroup(TASK_GROUP);
+                            task.commandLine("npm", "publish");
+                            task.workingDir(srcDirectory);
+                            task.dependsOn(syncConjureTypeScript);
+                            task.dependsOn(compileTypeScript);
+                        });
                 subproj.afterEvaluate(p -> subproj.getTasks().maybeCreate("publish").dependsOn(publishTypeScript));
-                Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-                cleanTask.dependsOn(project.getTasks().findByName("cleanCompileConjureTypeScript"));
+                addCleanTaskDependency(project, "cleanCompileConjureTypeScript");
+                addCleanTaskDependency(project, "cleanSyncConjureTypeScript");
+                addCleanTaskDependency(project, "cleanInstallTypeScriptDependencies");
             });
         }
     }
 
     private static void setupConjurePythonProject(
-            Project project, Supplier<GeneratorOptions> options, Task compileConjure, Task compileIrTask) {
+            Project project,
+            Provider<GeneratorOptions> options,
+            TaskProvider<Task> compileConjure,
+            TaskProvider<CompileIrTask> compileIrTask) {
         String pythonProjectName = project.getName() + "-python";
         if (project.findProject(pythonProjectName) != null) {
             Configuration conjurePythonConfig = project.getConfigurations().maybeCreate(CONJURE_PYTHON);
@@ -392,37 +486,32 @@ public final class ConjurePlugin implements Plugin<Project> {
             project.project(pythonProjectName, subproj -> {
                 applyDependencyForIdeTasks(subproj, compileConjure);
                 File conjurePythonDir = new File(project.getBuildDir(), CONJURE_PYTHON);
-                File buildDir = new File(project.getBuildDir(), "python");
-                File distDir = new File(buildDir, "dist");
                 project.getDependencies().add(CONJURE_PYTHON, CONJURE_PYTHON_BINARY);
-                ExtractExecutableTask extractConjurePythonTask = ExtractExecutableTask.createExtractTask(
+                TaskProvider<ExtractExecutableTask> extractConjurePythonTask = ExtractExecutableTask.createExtractTask(
                         project, "extractConjurePython", conjurePythonConfig, conjurePythonDir, "conjure-python");
-                Task compileConjurePython = project.getTasks().create("compileConjurePython",
-                        CompileConjurePythonTask.class, task -> {
+                TaskProvider<WriteGitignoreTask> gitignoreTask = createWriteGitignoreTask(
+                        subproj, "gitignoreConjurePython", subproj.getProjectDir(), "/python/\n");
+                TaskProvider<CompileConjurePythonTask> compileConjurePython = project.getTasks().register(
+                        "compileConjurePython", CompileConjurePythonTask.class, task -> {
                             task.setDescription("Generates Python files from your Conjure definitions.");
                             task.setGroup(TASK_GROUP);
                             task.setSource(compileIrTask);
-                            task.setExecutablePath(extractConjurePythonTask::getExecutable);
+                            task.setExecutablePath(() -> extractConjurePythonTask.get().getExecutable());
                             task.setOutputDirectory(subproj.file("python"));
                             task.setOptions(options);
-                            compileConjure.dependsOn(task);
-                            task.dependsOn(createWriteGitignoreTask(
-                                    subproj, "gitignoreConjurePython", subproj.getProjectDir(),
-                                    "/python/\n"));
+                            task.dependsOn(gitignoreTask);
                             task.dependsOn(extractConjurePythonTask);
                         });
-                project.getTasks().create("buildWheel", Exec.class, task -> {
+                compileConjure.configure(task -> task.dependsOn(compileConjurePython));
+                project.getTasks().register("buildWheel", BuildWheelTask.class, task -> {
                     task.setDescription("Runs `python setup.py sdist bdist_wheel --universal` to build a python wheel "
                             + "generated from your Conjure definitions.");
                     task.setGroup(TASK_GROUP);
-                    task.commandLine("python", "setup.py", "build", "--build-base", buildDir, "egg_info", "--egg-base",
-                            buildDir, "sdist", "--dist-dir", distDir, "bdist_wheel", "--universal", "--dist-dir",
-                            distDir);
-                    task.workingDir(subproj.file("python"));
+                    task.setPackageDirectory(subproj.file("python"));
+                    task.setBuildDirectory(new File(project.getBuildDir(), "python"));
                     task.dependsOn(compileConjurePython);
-                    Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-                    cleanTask.dependsOn(project.getTasks().findByName("cleanCompileConjurePython"));
                 });
+                addCleanTaskDependency(project, "cleanCompileConjurePython");
             });
         }
     }
@@ -432,63 +521,73 @@ public final class ConjurePlugin implements Plugin<Project> {
         javaPlugin.getSourceSets().getByName("main").getJava().srcDir(subproj.files(JAVA_GENERATED_SOURCE_DIRNAME));
     }
 
-    private static void applyDependencyForIdeTasks(Project project, Task compileConjure) {
+    private static void applyDependencyForIdeTasks(Project project, TaskProvider<? extends Task> compileConjure) {
         project.getPlugins().withType(IdeaPlugin.class, plugin -> {
-            Task task = project.getTasks().findByName("ideaModule");
-            if (task != null) {
-                task.dependsOn(compileConjure);
-            }
+            project.getTasks().withType(GenerateIdeaModule.class).configureEach(task -> task.dependsOn(compileConjure));
 
             plugin.getModel().getModule().getSourceDirs().add(project.file(JAVA_GENERATED_SOURCE_DIRNAME));
             plugin.getModel().getModule().getGeneratedSourceDirs().add(project.file(JAVA_GENERATED_SOURCE_DIRNAME));
         });
         project.getPlugins().withType(EclipsePlugin.class, plugin -> {
-            Task task = project.getTasks().findByName("eclipseClasspath");
-            if (task != null) {
-                task.dependsOn(compileConjure);
-            }
+            project.getTasks().withType(GenerateEclipseClasspath.class)
+                    .configureEach(task -> task.dependsOn(compileConjure));
         });
     }
 
-    private static Task createJavaProductDependenciesTask(Project project, Project subproj,
-            String taskName, GenerateConjureServiceDependenciesTask productDependencyTask) {
-        return project.getTasks().create(taskName, ConjureJavaServiceDependenciesTask.class, task -> {
-            task.setServiceDependencies(productDependencyTask::getConjureServiceDependencies);
-            task.setSubproject(subproj);
-            task.dependsOn(productDependencyTask);
-            subproj.getTasks().withType(Jar.class, jar -> jar.dependsOn(task));
-        });
+    /**
+     * Makes {@code clean} depend on one of the {@code clean<TaskName>} tasks provided by the {@link BasePlugin} rule,
+     * without realizing either task.
+     */
+    private static void addCleanTaskDependency(Project project, String cleanTaskName) {
+        project.getTasks().named(TASK_CLEAN).configure(cleanTask -> cleanTask.dependsOn(cleanTaskName));
+    }
+
+    private static TaskProvider<ConjureJavaServiceDependenciesTask> createJavaProductDependenciesTask(
+            Project project,
+            Project subproj,
+            String taskName,
+            TaskProvider<GenerateConjureServiceDependenciesTask> productDependencyTask) {
+        TaskProvider<ConjureJavaServiceDependenciesTask> javaProductDependenciesTask = project.getTasks().register(
+                taskName, ConjureJavaServiceDependenciesTask.class, task -> {
+                    task.setServiceDependencies(() -> productDependencyTask.get().getConjureServiceDependencies());
+                    task.setJarTasks(subproj.getTasks().withType(Jar.class));
+                    task.dependsOn(productDependencyTask);
+                });
+        subproj.getTasks().withType(Jar.class).configureEach(jar -> jar.dependsOn(javaProductDependenciesTask));
+        return javaProductDependenciesTask;
     }
 
-    private static Task createWriteGitignoreTask(Project project, String taskName, File outputDir, String contents) {
-        WriteGitignoreTask writeGitignoreTask = project.getTasks().create(taskName, WriteGitignoreTask.class);
-        writeGitignoreTask.setOutputDirectory(outputDir);
-        writeGitignoreTask.setContents(contents);
-        return writeGitignoreTask;
+    private static TaskProvider<WriteGitignoreTask> createWriteGitignoreTask(
+            Project project, String taskName, File outputDir, String contents) {
+        return project.getTasks().register(taskName, WriteGitignoreTask.class, writeGitignoreTask -> {
+            writeGitignoreTask.setOutputDirectory(outputDir);
+            writeGitignoreTask.setContents(contents);
+        });
     }
 
-    private static Task createCompileIrTask(Project project, Copy copyConjureSourcesTask) {
+    private static TaskProvider<CompileIrTask> createCompileIrTask(
+            Project project, TaskProvider<CopyConjureSourcesTask> copyConjureSourcesTask) {
         Configuration conjureCompilerConfig = project.getConfigurations().maybeCreate(CONJURE_COMPILER);
         File conjureCompilerDir = new File(project.getBuildDir(), CONJURE_COMPILER);
         project.getDependencies().add(CONJURE_COMPILER, CONJURE_COMPILER_BINARY);
-        ExtractExecutableTask extractCompilerTask = ExtractExecutableTask.createExtractTask(
+        TaskProvider<ExtractExecutableTask> extractCompilerTask = ExtractExecutableTask.createExtractTask(
                 project, "extractConjure", conjureCompilerConfig, conjureCompilerDir, "conjure");
 
         File irPath = Paths.get(
                 project.getBuildDir().toString(), "conjure-ir", project.getName() + ".conjure.json").toFile();
 
-        return project.getTasks().create(CONJURE_IR, CompileIrTask.class, compileIr -> {
+        return project.getTasks().register(CONJURE_IR, CompileIrTask.class, compileIr -> {
             compileIr.setDescription("Converts your Conjure YML files into a single portable JSON file in IR format.");
             compileIr.setGroup(TASK_GROUP);
-            compileIr.setInputDirectory(copyConjureSourcesTask::getDestinationDir);
-            compileIr.setExecutablePath(extractCompilerTask::getExecutable);
+            compileIr.setInputDirectory(() -> copyConjureSourcesTask.get().getOutputDirectory());
+            compileIr.setExecutablePath(() -> extractCompilerTask.get().getExecutable());
             compileIr.setOutputFile(irPath);
             compileIr.dependsOn(copyConjureSourcesTask);
             compileIr.dependsOn(extractCompilerTask);
         });
     }
 
-    private static Copy getConjureSources(
+    private static TaskProvider<CopyConjureSourcesTask> getConjureSources(
             Project project, org.gradle.api.internal.file.SourceDirectorySetFactory sourceDirectorySetFactory) {
         // Conjure code source set
         SourceDirectorySet conjureSourceSet = sourceDirectorySetFactory.create("conjure");
@@ -499,20 +598,26 @@ public final class ConjurePlugin implements Plugin<Project> {
         File buildDir = new File(project.getBuildDir(), "conjure");
 
         // Copy conjure sources into build directory
-        Copy copyConjureSourcesTask = project.getTasks().create("copyConjureSourcesIntoBuild", Copy.class);
-        copyConjureSourcesTask.into(project.file(buildDir)).from(conjureSourceSet);
-
-        copyConjureSourcesTask.doFirst(task -> {
-            GFileUtils.deleteDirectory(buildDir);
-        });
+        TaskProvider<CopyConjureSourcesTask> copyConjureSourcesTask = project.getTasks().register(
+                "copyConjureSourcesIntoBuild", CopyConjureSourcesTask.class, task -> {
+                    task.setSource(conjureSourceSet);
+                    task.setOutputDirectory(buildDir);
+                });
 
-        Task cleanTask = project.getTasks().findByName(TASK_CLEAN);
-        cleanTask.dependsOn(project.getTasks().findByName("cleanCopyConjureSourcesIntoBuild"));
+        addCleanTaskDependency(project, "cleanCopyConjureSourcesIntoBuild");
 
         return copyConjureSourcesTask;
     }
 
-    private static Supplier<GeneratorOptions> immutableOptionsSupplier(Supplier<GeneratorOptions> supplier) {
-        return () -> new GeneratorOptions(supplier.get());
+    /**
+     * Provides a fresh copy of the options on each resolution, which derived providers are free to add flags to.
+     */
+    static Provider<GeneratorOptions> immutableOptionsProvider(Project project, Supplier<GeneratorOptions> supplier) {
+        return project.provider(() -> new GeneratorOptions(supplier.get()));
+    }
+
+    @FunctionalInterface
+    private interface JavaGeneratorTaskFactory {
+        TaskProvider<? extends Task> create(String taskName, String flag, Project subproj);
     }
 }
@@ -16,12 +16,12 @@
 
 package com.palantir.gradle.conjure;
 
-import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.api.tasks.TaskProvider;
 
 public final class ConjurePublishPlugin implements Plugin<Project> {
 
@@ -31,10 +31,9 @@ public final class ConjurePublishPlugin implements Plugin<Project> {
         project.getPluginManager().apply(MavenPublishPlugin.class);
         project.getPluginManager().apply(ConjurePlugin.class);
 
-        CompileIrTask compileIr = (CompileIrTask) project.getTasks().findByName(ConjurePlugin.CONJURE_IR);
-        if (compileIr == null) {
-            throw new GradleException("Unable to find compileIr task");
-        }
+        TaskProvider<CompileIrTask> compileIr = project.getTasks()
+                .withType(CompileIrTask.class)
+                .named(ConjurePlugin.CONJURE_IR);
 
         // Configure publishing
         project.getExtensions().configure(PublishingExtension.class, publishing -> {
@@ -43,7 +42,7 @@ public final class ConjurePublishPlugin implements Plugin<Project> {
                         "conjure",
                         MavenPublication.class,
                         mavenPublication -> mavenPublication.artifact(
-                                compileIr.getOutputFile(),
+                                compileIr.get().getOutputFile(),
                                 mavenArtifact -> {
                                     mavenArtifact.builtBy(compileIr);
                                     mavenArtifact.setExtension("conjure.json");
@@ -0,0 +1,53 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Stages the Conjure sources into a single directory for the compiler. Only files which were added or changed are
+ * written, and files which no longer exist are removed, so that unchanged files keep their timestamps.
+ */
+public class CopyConjureSourcesTask extends SourceTask {
+    private File outputDirectory;
+
+    @OutputDirectory
+    public final File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public final void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @TaskAction
+    public final void copySources() throws IOException {
+        Map<String, File> sources = new HashMap<>();
+        getSource().visit(details -> {
+            if (!details.isDirectory()) {
+                sources.put(details.getRelativePath().getPathString(), details.getFile());
+            }
+        });
+        DirectorySync.sync(sources, getOutputDirectory(), path -> false);
+    }
+}
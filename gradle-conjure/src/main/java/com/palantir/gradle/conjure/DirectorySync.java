@@ -0,0 +1,110 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Synchronizes a directory with a set of files while touching as little as possible: files whose contents are
+ * unchanged keep their timestamps, so tools downstream which look at timestamps don't redo any work for them.
+ */
+final class DirectorySync {
+
+    private DirectorySync() { }
+
+    /**
+     * Makes {@code targetDirectory} contain exactly {@code sources}, keyed by their '/'-separated path relative to
+     * {@code targetDirectory}. Only files whose contents differ are written, and files that aren't in {@code sources}
+     * are deleted, along with any directories left empty. Relative paths (of files or whole directories) matching
+     * {@code preserve} are never touched.
+     */
+    static void sync(Map<String, File> sources, File targetDirectory, Predicate<String> preserve) throws IOException {
+        Path target = targetDirectory.toPath();
+        Files.createDirectories(target);
+
+        Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(target) && preserve.test(relativePath(target, dir))
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = relativePath(target, file);
+                if (!sources.containsKey(relativePath) && !preserve.test(relativePath)) {
+                    Files.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                if (!dir.equals(target) && isEmptyDirectory(dir)) {
+                    Files.delete(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            Path destination = target.resolve(entry.getKey());
+            if (Files.isRegularFile(destination)
+                    && com.google.common.io.Files.equal(entry.getValue(), destination.toFile())) {
+                continue;
+            }
+            Files.createDirectories(destination.getParent());
+            Files.copy(entry.getValue().toPath(), destination,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /** Lists the files under {@code directory}, keyed by their '/'-separated path relative to it. */
+    static Map<String, File> listFiles(File directory) throws IOException {
+        Path root = directory.toPath();
+        Map<String, File> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile).forEach(path -> files.put(relativePath(root, path), path.toFile()));
+        }
+        return files;
+    }
+
+    private static String relativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static boolean isEmptyDirectory(Path dir) throws IOException {
+        try (Stream<Path> children = Files.list(dir)) {
+            return !children.findAny().isPresent();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.util.List;
+import javax.inject.Inject;
+
+/** A unit of work submitted to the Gradle Worker API which runs a single process in the given directory. */
+public final class ExecWorker implements Runnable {
+    private final List<String> commandLine;
+    private final File workingDirectory;
+    private final ProcessMetricsReporter processMetrics;
+
+    @Inject
+    public ExecWorker(List<String> commandLine, File workingDirectory, ProcessMetricsReporter processMetrics) {
+        this.commandLine = commandLine;
+        this.workingDirectory = workingDirectory;
+        this.processMetrics = processMetrics;
+    }
+
+    @Override
+    public void run() {
+        processMetrics.exec(commandLine, workingDirectory);
+    }
+}
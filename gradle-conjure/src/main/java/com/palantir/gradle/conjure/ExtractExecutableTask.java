@@ -17,95 +17,54 @@
 package com.palantir.gradle.conjure;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Suppliers;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.function.Supplier;
-import org.gradle.api.Action;
-import org.gradle.api.GradleException;
+import java.util.UUID;
+import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
-import org.gradle.api.file.RelativePath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.Sync;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.util.GFileUtils;
 
-public class ExtractExecutableTask extends Sync {
+/**
+ * Extracts a tar archive containing a single root directory, stripping that root directory.
+ *
+ * <p>Archives are extracted once per machine into a cache under the Gradle user home, keyed by the SHA-256 of the
+ * archive. The {@link #getOutputDirectory() output directory} is then a symbolic link to the cached copy, or a copy
+ * of it where symbolic links aren't supported, so extracting a distribution that any project has extracted before is
+ * close to free.
+ */
+public class ExtractExecutableTask extends DefaultTask {
     private FileCollection archive;
     private File outputDirectory;
+    private File cacheDirectory;
     private String executableName;
 
-    public ExtractExecutableTask() {
-        // Memoize this because we are re-using it in the doLast action.
-        Supplier<File> tarFile = Suppliers.memoize(this::resolveTarFile);
-
-        // Configure the spec lazily
-        from((Callable) () -> getProject().tarTree(tarFile.get())); // will get lazily resolved
-        eachFile(fcd -> fcd.setRelativePath(stripFirstName(fcd.getRelativePath())));
-        into((Callable) this::getOutputDirectory); // will get lazily resolved
-
-        doFirst(new Action<Task>() {
-            @Override
-            public void execute(Task task) {
-                Set<String> rootDirectories = new HashSet<>();
-                getProject().tarTree(tarFile.get()).visit(new FileVisitor() {
-                    @Override
-                    public void visitDir(FileVisitDetails dirDetails) {
-                        // Note: If root dir contains only another dir (e.g. a/b), we won't get called with just that
-                        // root dir 'a', but with 'a/b' directly. Hence, we look at all dirs and extract their first
-                        // 'segment'.
-                        String[] segments = dirDetails.getRelativePath().getSegments();
-                        if (segments.length >= 1) {
-                            rootDirectories.add(segments[0]);
-                        }
-                    }
-
-                    @Override
-                    public void visitFile(FileVisitDetails fileDetails) { }
-                });
-                if (rootDirectories.size() != 1) {
-                    throw new GradleException(String.format(
-                            "Expected exactly one root directory in tar '%s', aborting: %s",
-                            tarFile.get(),
-                            rootDirectories));
-                }
-            }
-        });
-
-        doLast(new Action<Task>() {
-            @Override
-            public void execute(Task task) {
-                getLogger().info("Extracted into {}", getOutputDirectory());
-                // Ensure the executable exists
-                Preconditions.checkState(
-                        Files.exists(getExecutable().toPath()),
-                        "Couldn't find expected file after extracting archive %s: %s",
-                        tarFile.get(),
-                        getExecutable());
-            }
-        });
-    }
-
-    public static ExtractExecutableTask createExtractTask(
+    public static TaskProvider<ExtractExecutableTask> createExtractTask(
             Project project, String taskName, FileCollection archive, File outputDir, String executableName) {
-        return project.getTasks().create(taskName, ExtractExecutableTask.class, task -> {
+        File cacheDirectory = new File(project.getGradle().getGradleUserHomeDir(), "caches/conjure/extracted");
+        return project.getTasks().register(taskName, ExtractExecutableTask.class, task -> {
             task.setArchive(archive);
             task.setOutputDirectory(outputDir);
+            task.setCacheDirectory(cacheDirectory);
             task.setExecutableName(executableName);
         });
     }
 
-
     @InputFiles
     public final FileCollection getArchive() {
         return archive;
@@ -124,6 +83,18 @@ public class ExtractExecutableTask extends Sync {
         this.outputDirectory = outputDirectory;
     }
 
+    /**
+     * Where archives are extracted to, each into a directory named after the SHA-256 of the archive.
+     */
+    @Internal
+    public final File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public final void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
     /**
      * The file name of the executable. This file should exist under {@code <single root directory>/bin} inside the
      * tar archive.
@@ -145,6 +116,82 @@ public class ExtractExecutableTask extends Sync {
         return new File(getOutputDirectory(), String.format("bin/%s", executableName));
     }
 
+    @TaskAction
+    public final void extract() throws IOException {
+        File tarFile = resolveTarFile();
+        String hash = com.google.common.io.Files.asByteSource(tarFile).hash(Hashing.sha256()).toString();
+        Path extracted = cacheDirectory.toPath().resolve(hash);
+
+        if (Files.isDirectory(extracted)) {
+            getLogger().info("Using previously extracted {} from {}", tarFile, extracted);
+        } else {
+            extractIntoCache(tarFile, extracted);
+        }
+        linkOutputDirectory(tarFile, extracted);
+
+        getLogger().info("Extracted into {}", getOutputDirectory());
+        // Ensure the executable exists
+        Preconditions.checkState(
+                Files.exists(getExecutable().toPath()),
+                "Couldn't find expected file after extracting archive %s: %s",
+                tarFile,
+                getExecutable());
+    }
+
+    private void extractIntoCache(File tarFile, Path extracted) throws IOException {
+        // Extract next to the final location then move into place, so that concurrent builds never observe a
+        // partially extracted distribution
+        Path temporary = extracted.resolveSibling(extracted.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            TarExtractor.extract(tarFile, temporary);
+            Files.move(temporary, extracted, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!Files.isDirectory(extracted)) {
+                throw e;
+            }
+            getLogger().info("{} was extracted concurrently, using existing copy", tarFile);
+        } finally {
+            GFileUtils.deleteQuietly(temporary.toFile());
+        }
+    }
+
+    private void linkOutputDirectory(File tarFile, Path extracted) throws IOException {
+        Path output = getOutputDirectory().toPath();
+        if (Files.isSymbolicLink(output)) {
+            if (Files.readSymbolicLink(output).equals(extracted)) {
+                return;
+            }
+            Files.delete(output);
+        }
+
+        // A real directory is left behind by older versions of the plugin or by a build that couldn't create the link.
+        // Move it aside rather than deleting it, so that if linking fails again it can be updated in place, which only
+        // rewrites the files that changed between the two archives.
+        Path previous = null;
+        if (Files.isDirectory(output, LinkOption.NOFOLLOW_LINKS)) {
+            previous = output.resolveSibling(output.getFileName() + ".previous-" + UUID.randomUUID());
+            Files.move(output, previous);
+        } else if (Files.exists(output, LinkOption.NOFOLLOW_LINKS)) {
+            GFileUtils.forceDelete(output.toFile());
+        }
+
+        Files.createDirectories(output.getParent());
+        try {
+            Files.createSymbolicLink(output, extracted);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            getLogger().info("Unable to link {} to {}, extracting instead", output, extracted, e);
+            if (previous != null) {
+                Files.move(previous, output);
+                previous = null;
+            }
+            TarExtractor.extract(tarFile, output);
+        } finally {
+            if (previous != null) {
+                GFileUtils.deleteDirectory(previous.toFile());
+            }
+        }
+    }
+
     private File resolveTarFile() {
         Set<File> resolvedFiles = archive.getFiles();
         Preconditions.checkState(resolvedFiles.size() == 1,
@@ -152,9 +199,4 @@ public class ExtractExecutableTask extends Sync {
                 getExecutableName(), resolvedFiles);
         return Iterables.getOnlyElement(resolvedFiles);
     }
-
-    private static RelativePath stripFirstName(RelativePath relativePath) {
-        String[] segments = relativePath.getSegments();
-        return new RelativePath(relativePath.isFile(), Arrays.copyOfRange(segments, 1, segments.length));
-    }
 }
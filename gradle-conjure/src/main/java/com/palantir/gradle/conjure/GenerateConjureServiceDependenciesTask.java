@@ -29,6 +29,8 @@ import java.util.Set;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
@@ -40,6 +42,8 @@ public class GenerateConjureServiceDependenciesTask extends DefaultTask {
             .setSerializationInclusion(JsonInclude.Include.NON_NULL)
             .setPropertyNamingStrategy(PropertyNamingStrategy.KEBAB_CASE);
 
+    private final Provider<RegularFile> outputFile =
+            getProject().getLayout().getBuildDirectory().file("service-dependencies.json");
     private Supplier<Set<ServiceDependency>> conjureServiceDependencies;
 
     @Input
@@ -49,7 +53,7 @@ public class GenerateConjureServiceDependenciesTask extends DefaultTask {
 
     @OutputFile
     public final File getOutputFile() {
-        return new File(getProject().getBuildDir(), "service-dependencies.json");
+        return outputFile.get().getAsFile();
     }
 
     final void setConjureServiceDependencies(
@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Runs {@code npm install} for a generated TypeScript package.
+ *
+ * <p>The generated {@code package.json} contains the project version, which changes on every commit, so rather than
+ * the whole file only a hash of its dependency sections is an input. As long as those are unchanged the installed
+ * {@code node_modules} is up to date.
+ *
+ * <p>The task isn't cacheable: the build cache doesn't preserve the symlinks npm creates under
+ * {@code node_modules/.bin}, and a restored tree of native binaries built elsewhere would be large and possibly broken.
+ */
+public class InstallTypeScriptDependenciesTask extends DefaultTask {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ImmutableList<String> DEPENDENCY_SECTIONS = ImmutableList.of(
+            "dependencies", "devDependencies", "optionalDependencies", "peerDependencies");
+
+    private File packageDirectory;
+    private final Provider<ProcessMetricsReporter> processMetrics = ConjureMetrics.processReporter(this);
+
+    /** The directory containing {@code package.json}. */
+    @Internal
+    public final File getPackageDirectory() {
+        return packageDirectory;
+    }
+
+    public final void setPackageDirectory(File packageDirectory) {
+        this.packageDirectory = packageDirectory;
+    }
+
+    /** SHA-256 of the dependency sections of {@code package.json}, with their entries sorted by name. */
+    @Input
+    public final String getDependenciesHash() {
+        return dependenciesHash(new File(getPackageDirectory(), "package.json"));
+    }
+
+    @OutputDirectory
+    public final File getNodeModulesDirectory() {
+        return new File(getPackageDirectory(), "node_modules");
+    }
+
+    @TaskAction
+    public final void install() {
+        processMetrics.get().exec(ImmutableList.of("npm", "install", "--no-package-lock"), getPackageDirectory());
+    }
+
+    static String dependenciesHash(File packageJson) {
+        try {
+            JsonNode manifest = OBJECT_MAPPER.readTree(packageJson);
+            Map<String, Map<String, String>> dependencies = new TreeMap<>();
+            for (String section : DEPENDENCY_SECTIONS) {
+                Map<String, String> entries = new TreeMap<>();
+                manifest.path(section).fields().forEachRemaining(
+                        entry -> entries.put(entry.getKey(), entry.getValue().asText()));
+                if (!entries.isEmpty()) {
+                    dependencies.put(section, entries);
+                }
+            }
+            return Hashing.sha256().hashBytes(OBJECT_MAPPER.writeValueAsBytes(dependencies)).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + packageJson, e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A generator distribution laid out by Gradle's {@code application} plugin, i.e. a {@code bin/} start script which
+ * runs a main class from the jars in {@code lib/}. Knowing these lets us run the generator without its start script.
+ */
+final class JvmGeneratorDistribution {
+    private static final Pattern CLASSPATH = Pattern.compile("^CLASSPATH=(.*)$", Pattern.MULTILINE);
+    private static final Pattern MAIN_CLASS = Pattern.compile(
+            "-classpath \"[^\\s]*\\$CLASSPATH[^\\s]*\" ([\\w.$]+) ");
+
+    private final String mainClass;
+    private final List<File> classpath;
+
+    private JvmGeneratorDistribution(String mainClass, List<File> classpath) {
+        this.mainClass = mainClass;
+        this.classpath = classpath;
+    }
+
+    String getMainClass() {
+        return mainClass;
+    }
+
+    List<File> getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Inspects the start script at {@code executable}, returning empty if it doesn't look like a JVM application
+     * (e.g. conjure-typescript, which is a node application).
+     */
+    static Optional<JvmGeneratorDistribution> fromExecutable(File executable) {
+        String script;
+        try {
+            script = new String(Files.readAllBytes(executable.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read generator start script " + executable, e);
+        }
+
+        Matcher mainClassMatcher = MAIN_CLASS.matcher(script);
+        Matcher classpathMatcher = CLASSPATH.matcher(script);
+        if (!mainClassMatcher.find() || !classpathMatcher.find()) {
+            return Optional.empty();
+        }
+
+        File distributionDirectory = executable.getParentFile().getParentFile();
+        List<File> classpath = Arrays.stream(classpathMatcher.group(1).trim().split(":"))
+                .map(entry -> new File(entry.replace("$APP_HOME", distributionDirectory.getAbsolutePath())))
+                .collect(ImmutableList.toImmutableList());
+        if (classpath.isEmpty() || !classpath.stream().allMatch(File::isFile)) {
+            return Optional.empty();
+        }
+        return Optional.of(new JvmGeneratorDistribution(mainClassMatcher.group(1), classpath));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JvmGeneratorDistribution{mainClass=%s, classpath=%s}", mainClass,
+                classpath.stream().map(File::getName).collect(Collectors.toList()));
+    }
+}
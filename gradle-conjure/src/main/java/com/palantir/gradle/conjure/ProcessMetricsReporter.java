@@ -0,0 +1,278 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.base.Splitter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs processes for a task and, if {@link ConjureMetrics metrics} are enabled, writes the wall time, CPU time and
+ * peak resident set size of each of them to a separate JSON file in the task's report directory. CPU time and peak
+ * RSS are sampled from {@code /proc} while the process runs, so they are only reported on Linux. Both cover the whole
+ * process tree: CPU time includes children which have already exited and been waited for, and peak RSS is the
+ * largest combined resident set size of the process and its running descendants seen in any sample.
+ *
+ * <p>Instances are passed to worker actions, so they must be serializable.
+ */
+final class ProcessMetricsReporter implements Serializable {
+    static final String PROCESS_REPORT_PREFIX = "process-";
+
+    private static final long serialVersionUID = 1L;
+    private static final long SAMPLE_INTERVAL_MILLIS = 20;
+    // USER_HZ, which is 100 on all common Linux platforms
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private final String taskPath;
+    private final File reportDirectory;
+
+    /** Reports nothing if {@code reportDirectory} is null. */
+    ProcessMetricsReporter(String taskPath, File reportDirectory) {
+        this.taskPath = taskPath;
+        this.reportDirectory = reportDirectory;
+    }
+
+    void exec(List<String> commandLine) {
+        exec(commandLine, null);
+    }
+
+    void exec(List<String> commandLine, File workingDirectory) {
+        if (reportDirectory == null) {
+            ConjureExec.exec(commandLine, workingDirectory);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        Sampler[] sampler = new Sampler[1];
+        boolean succeeded = false;
+        try {
+            ConjureExec.exec(commandLine, workingDirectory, process -> {
+                sampler[0] = Sampler.start(process);
+            });
+            succeeded = true;
+        } finally {
+            long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Sampler finished = sampler[0] == null ? null : sampler[0].stop();
+            Map<String, Object> report = report(commandLine, startTime, wallTimeMillis, succeeded);
+            report.put("workingDirectory", workingDirectory == null ? null : workingDirectory.getAbsolutePath());
+            report.put("cpuTimeMillis", finished == null ? null : finished.cpuTimeMillis);
+            report.put("peakRssBytes", finished == null ? null : finished.peakRssBytes);
+            ConjureMetrics.writeReport(reportDirectory, PROCESS_REPORT_PREFIX, report);
+        }
+    }
+
+    /**
+     * Runs {@code action} within this JVM in place of the process {@code commandLine} would start, such as a generator
+     * called in a generator daemon, and reports it like that process. CPU time only covers the calling thread, and
+     * there is no peak RSS because the JVM is shared with other work.
+     */
+    void call(List<String> commandLine, Runnable action) {
+        if (reportDirectory == null) {
+            action.run();
+            return;
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureCpu = threads.isCurrentThreadCpuTimeSupported();
+        long startCpu = measureCpu ? threads.getCurrentThreadCpuTime() : 0;
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            action.run();
+            succeeded = true;
+        } finally {
+            long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Map<String, Object> report = report(commandLine, startTime, wallTimeMillis, succeeded);
+            report.put("inProcess", true);
+            report.put("cpuTimeMillis",
+                    measureCpu ? TimeUnit.NANOSECONDS.toMillis(threads.getCurrentThreadCpuTime() - startCpu) : null);
+            report.put("peakRssBytes", null);
+            ConjureMetrics.writeReport(reportDirectory, PROCESS_REPORT_PREFIX, report);
+        }
+    }
+
+    private Map<String, Object> report(
+            List<String> commandLine, long startTime, long wallTimeMillis, boolean succeeded) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("task", taskPath);
+        report.put("commandLine", commandLine);
+        report.put("startTime", startTime);
+        report.put("wallTimeMillis", wallTimeMillis);
+        report.put("succeeded", succeeded);
+        return report;
+    }
+
+    /** Polls {@code /proc} for the CPU time and memory use of a running process and its descendants. */
+    private static final class Sampler implements Runnable {
+        private final Process process;
+        private final long pid;
+        private final Thread thread;
+        private volatile Long cpuTimeMillis;
+        private volatile Long peakRssBytes;
+
+        private Sampler(Process process, long pid) {
+            this.process = process;
+            this.pid = pid;
+            this.thread = new Thread(this, "conjure-process-sampler-" + pid);
+            this.thread.setDaemon(true);
+        }
+
+        static Sampler start(Process process) {
+            Optional<Long> pid = pid(process);
+            if (!pid.isPresent() || !Files.isDirectory(Paths.get("/proc", pid.get().toString()))) {
+                return null;
+            }
+            Sampler sampler = new Sampler(process, pid.get());
+            sampler.thread.start();
+            return sampler;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean exited = false;
+                while (!exited) {
+                    sample();
+                    exited = process.waitFor(SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                // Final reading as soon as the process exits, which succeeds unless the JVM has already reaped it
+                sample();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Sampler stop() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this;
+        }
+
+        /**
+         * Sums the CPU time of every process in the tree. The sum stays continuous as descendants exit, because the
+         * time of a child which has been waited for moves into its parent's {@code cutime} and {@code cstime}.
+         * Samples never lower the totals, so a tree read while processes vanish doesn't undo earlier readings.
+         */
+        private void sample() {
+            long ticks = 0;
+            long rssBytes = 0;
+            Deque<Long> pending = new ArrayDeque<>();
+            pending.add(pid);
+            while (!pending.isEmpty()) {
+                long next = pending.remove();
+                try {
+                    ticks += cpuTicks(next);
+                    // The high water mark of the process itself also covers peaks between samples
+                    rssBytes += memoryKilobytes(next, next == pid ? "VmHWM:" : "VmRSS:") * 1024;
+                    pending.addAll(children(next));
+                } catch (IOException | RuntimeException expected) {
+                    // The process exited since it was found, the time it used is now accounted to its parent
+                }
+            }
+            long millis = ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+            if (ticks > 0 && (cpuTimeMillis == null || millis > cpuTimeMillis)) {
+                cpuTimeMillis = millis;
+            }
+            if (rssBytes > 0 && (peakRssBytes == null || rssBytes > peakRssBytes)) {
+                peakRssBytes = rssBytes;
+            }
+        }
+
+        /** The sum of {@code utime}, {@code stime}, {@code cutime} and {@code cstime}, fields 14 to 17. */
+        private static long cpuTicks(long processId) throws IOException {
+            String stat = new String(Files.readAllBytes(proc(processId, "stat")), StandardCharsets.UTF_8);
+            // Fields after the parenthesized command name, starting with the state (field 3)
+            List<String> fields = Splitter.on(' ').splitToList(stat.substring(stat.lastIndexOf(')') + 2));
+            long ticks = 0;
+            for (int field = 14; field <= 17; field++) {
+                ticks += Long.parseLong(fields.get(field - 3));
+            }
+            return ticks;
+        }
+
+        private static long memoryKilobytes(long processId, String key) throws IOException {
+            for (String line : Files.readAllLines(proc(processId, "status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(Splitter.on(' ').omitEmptyStrings().splitToList(line).get(1));
+                }
+            }
+            // Zombies have no memory left
+            return 0;
+        }
+
+        /**
+         * The children of every thread of a process. Kernels built without {@code CONFIG_PROC_CHILDREN} have no
+         * children files, in which case only the process itself and the children it has waited for are measured.
+         */
+        private static List<Long> children(long processId) throws IOException {
+            List<Long> children = new ArrayList<>();
+            try (DirectoryStream<Path> threads = Files.newDirectoryStream(proc(processId, "task"))) {
+                for (Path thread : threads) {
+                    Path childrenFile = thread.resolve("children");
+                    if (Files.isRegularFile(childrenFile)) {
+                        String content = new String(Files.readAllBytes(childrenFile), StandardCharsets.UTF_8);
+                        for (String child : Splitter.on(' ').trimResults().omitEmptyStrings().split(content)) {
+                            children.add(Long.parseLong(child));
+                        }
+                    }
+                }
+            }
+            return children;
+        }
+
+        private static Path proc(long processId, String file) {
+            return Paths.get("/proc", Long.toString(processId), file);
+        }
+
+        private static Optional<Long> pid(Process process) {
+            try {
+                // Process#pid only exists from Java 9, before which UNIXProcess keeps the pid in a private field
+                return Optional.of((Long) Process.class.getMethod("pid").invoke(process));
+            } catch (ReflectiveOperationException e) {
+                try {
+                    Field field = process.getClass().getDeclaredField("pid");
+                    field.setAccessible(true);
+                    return Optional.of((long) field.getInt(process));
+                } catch (ReflectiveOperationException | RuntimeException inner) {
+                    return Optional.empty();
+                }
+            }
+        }
+    }
+}
@@ -55,18 +55,33 @@ public final class RenderGeneratorOptions {
             }
         });
 
-        return resolvedProperties.build().entrySet().stream().map(entry -> {
-            Object value = entry.getValue();
-            if (value == Boolean.TRUE) {
-                return "--" + entry.getKey();
-            }
-            Preconditions.checkArgument(
-                    !entry.getKey().contains("="),
-                    "Conjure generator parameter '%s' cannot contain '='",
-                    entry.getKey());
-            String stringValue = Objects.toString(value);
-            Preconditions.checkNotNull(stringValue, "Value cannot be null");
-            return "--" + entry.getKey() + "=" + stringValue;
-        }).collect(Collectors.toList());
+        return resolvedProperties.build().entrySet().stream()
+                .map(entry -> toArg(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Renders a {@link GeneratorOptions} to the command-line arguments it produces, sorted by option name. Unlike the
+     * options themselves this doesn't depend on the order options were declared in or on the types of their values,
+     * so it is suitable as a task input.
+     */
+    public static List<String> toCanonicalArgs(GeneratorOptions options) {
+        return options.getProperties().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> toArg(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static String toArg(String key, Object value) {
+        if (value == Boolean.TRUE) {
+            return "--" + key;
+        }
+        Preconditions.checkArgument(
+                !key.contains("="),
+                "Conjure generator parameter '%s' cannot contain '='",
+                key);
+        String stringValue = Objects.toString(value);
+        Preconditions.checkNotNull(stringValue, "Value cannot be null");
+        return "--" + key + "=" + stringValue;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Copies the sources for one conjure-java generator flag out of the output of a {@link CompileConjureJavaTask}.
+ *
+ * <p>conjure-java writes a {@code <Service>.java} Jersey interface and a {@code <Service>Retrofit.java} Retrofit
+ * interface for each service in the IR; everything else belongs to the objects project.
+ */
+public class RouteConjureJavaSourcesTask extends DefaultTask {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final FileTree generatedFiles;
+    private File generatedDirectory;
+    private FileCollection irFiles;
+    private String flag;
+    private File outputDirectory;
+
+    public RouteConjureJavaSourcesTask() {
+        this.generatedFiles = getProject().fileTree((Callable<File>) this::getGeneratedDirectory);
+    }
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final File getGeneratedDirectory() {
+        return generatedDirectory;
+    }
+
+    public final void setGeneratedDirectory(File generatedDirectory) {
+        this.generatedDirectory = generatedDirectory;
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public final FileCollection getIrFiles() {
+        return irFiles;
+    }
+
+    public final void setIrFiles(FileCollection irFiles) {
+        this.irFiles = irFiles;
+    }
+
+    /** One of {@code objects}, {@code jersey} or {@code retrofit}. */
+    @Input
+    public final String getFlag() {
+        return flag;
+    }
+
+    public final void setFlag(String flag) {
+        this.flag = flag;
+    }
+
+    @OutputDirectory
+    public final File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public final void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    @TaskAction
+    public final void routeSources() throws IOException {
+        JsonNode ir = OBJECT_MAPPER.readTree(irFiles.getSingleFile());
+        Set<String> jerseyFiles = servicePaths(ir, "");
+        Set<String> retrofitFiles = servicePaths(ir, "Retrofit");
+        Predicate<String> belongsHere;
+        switch (flag) {
+            case "jersey":
+                belongsHere = jerseyFiles::contains;
+                break;
+            case "retrofit":
+                belongsHere = retrofitFiles::contains;
+                break;
+            case "objects":
+                belongsHere = path -> !jerseyFiles.contains(path) && !retrofitFiles.contains(path);
+                break;
+            default:
+                throw new IllegalStateException("Unknown conjure-java flag: " + flag);
+        }
+
+        Map<String, File> sources = new HashMap<>();
+        generatedFiles.visit(details -> {
+            String path = details.getRelativePath().getPathString();
+            if (!details.isDirectory() && belongsHere.test(path)) {
+                sources.put(path, details.getFile());
+            }
+        });
+        DirectorySync.sync(sources, outputDirectory, path -> false);
+    }
+
+    private static Set<String> servicePaths(JsonNode ir, String suffix) {
+        ImmutableSet.Builder<String> paths = ImmutableSet.builder();
+        for (JsonNode service : ir.path("services")) {
+            JsonNode serviceName = service.path("serviceName");
+            paths.add(serviceName.path("package").asText().replace('.', '/')
+                    + "/" + serviceName.path("name").asText() + suffix + ".java");
+        }
+        return paths.build();
+    }
+}
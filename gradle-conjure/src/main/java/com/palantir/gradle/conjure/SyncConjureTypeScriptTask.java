@@ -0,0 +1,92 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Copies the package generated by a {@link CompileConjureTypeScriptTask} into the TypeScript project, only writing
+ * the files whose contents changed so that npm and tsc don't redo any work for unchanged modules. Stale files are
+ * removed, while {@code node_modules} and the JavaScript compiled from files that are still generated are left alone.
+ *
+ * <p>Only the copied files are outputs of this task, so that {@code node_modules} and the compiled JavaScript in the
+ * same directory don't overlap with them.
+ */
+public class SyncConjureTypeScriptTask extends DefaultTask {
+    private static final String NODE_MODULES = "node_modules";
+
+    private File generatedDirectory;
+    private File packageDirectory;
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final File getGeneratedDirectory() {
+        return generatedDirectory;
+    }
+
+    public final void setGeneratedDirectory(File generatedDirectory) {
+        this.generatedDirectory = generatedDirectory;
+    }
+
+    /** The directory of the TypeScript package, where npm and tsc are run. */
+    @Internal
+    public final File getPackageDirectory() {
+        return packageDirectory;
+    }
+
+    public final void setPackageDirectory(File packageDirectory) {
+        this.packageDirectory = packageDirectory;
+    }
+
+    /** Each generated file, keyed by its path relative to the package directory. */
+    @OutputFiles
+    public final Map<String, File> getPackageFiles() {
+        Map<String, File> packageFiles = new TreeMap<>();
+        generatedFiles().keySet().forEach(path -> packageFiles.put(path, new File(getPackageDirectory(), path)));
+        return packageFiles;
+    }
+
+    @TaskAction
+    public final void sync() throws IOException {
+        Map<String, File> generatedFiles = generatedFiles();
+        DirectorySync.sync(
+                generatedFiles,
+                getPackageDirectory(),
+                path -> path.equals(NODE_MODULES)
+                        || path.startsWith(NODE_MODULES + "/")
+                        || CompileTypeScriptTask.isCompiledFile(path, generatedFiles.keySet()));
+    }
+
+    private Map<String, File> generatedFiles() {
+        try {
+            return DirectorySync.listFiles(getGeneratedDirectory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + getGeneratedDirectory(), e);
+        }
+    }
+}
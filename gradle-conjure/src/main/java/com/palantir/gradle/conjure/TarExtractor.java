@@ -0,0 +1,208 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.gradle.api.GradleException;
+
+/**
+ * Extracts (optionally gzipped) tar archives which contain a single root directory, stripping that directory, in a
+ * single streaming pass over the archive.
+ */
+final class TarExtractor {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TarExtractor() { }
+
+    /**
+     * Extracts the contents of the single root directory of {@code archive} into {@code target}. Files in
+     * {@code target} whose size and modification time already match the archive are left alone, and files which
+     * aren't in the archive are deleted.
+     */
+    static void extract(File archive, Path target) throws IOException {
+        Path normalizedTarget = target.toAbsolutePath().normalize();
+        Files.createDirectories(normalizedTarget);
+        Path realTarget = normalizedTarget.toRealPath();
+        Set<Path> extracted = new HashSet<>();
+        String rootDirectory = null;
+
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(open(archive))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                String[] segments = segments(entry.getName());
+                if (segments.length == 0) {
+                    continue;
+                }
+
+                if (rootDirectory == null) {
+                    rootDirectory = segments[0];
+                } else if (!rootDirectory.equals(segments[0])) {
+                    throw new GradleException(String.format(
+                            "Expected exactly one root directory in tar '%s', aborting: [%s, %s]",
+                            archive, rootDirectory, segments[0]));
+                }
+                if (segments.length == 1) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    throw new GradleException(String.format(
+                            "Expected exactly one root directory in tar '%s', aborting: found file %s",
+                            archive, entry.getName()));
+                }
+
+                Path destination = resolve(normalizedTarget, segments, archive, entry);
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(destination);
+                    checkInsideTarget(realTarget, destination, archive, entry);
+                    continue;
+                }
+                Files.createDirectories(destination.getParent());
+                // An earlier symbolic link entry may make a parent directory resolve somewhere else
+                checkInsideTarget(realTarget, destination.getParent(), archive, entry);
+
+                if (entry.isSymbolicLink()) {
+                    Path linkTarget = destination.getParent().resolve(entry.getLinkName()).normalize();
+                    if (!linkTarget.startsWith(normalizedTarget)) {
+                        throw new GradleException(String.format(
+                                "Symbolic link %s in tar '%s' points outside of the archive root: %s",
+                                entry.getName(), archive, entry.getLinkName()));
+                    }
+                    Files.deleteIfExists(destination);
+                    Files.createSymbolicLink(destination, Paths.get(entry.getLinkName()));
+                } else if (entry.isLink()) {
+                    // Hard links name another entry of the archive, which must have been extracted before them
+                    Path linked = resolveHardLink(normalizedTarget, rootDirectory, archive, entry);
+                    if (!extracted.contains(linked) || !Files.isRegularFile(linked, LinkOption.NOFOLLOW_LINKS)) {
+                        throw new GradleException(String.format(
+                                "Hard link %s in tar '%s' doesn't refer to a file extracted before it: %s",
+                                entry.getName(), archive, entry.getLinkName()));
+                    }
+                    Files.copy(linked, destination, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                } else if (entry.isFile()) {
+                    extractFile(tar, entry, destination);
+                } else {
+                    throw new GradleException(String.format(
+                            "Entry %s in tar '%s' is neither a file, a directory nor a link",
+                            entry.getName(), archive));
+                }
+                extracted.add(destination);
+            }
+        }
+
+        if (rootDirectory == null) {
+            throw new GradleException(String.format("Expected exactly one root directory in tar '%s', "
+                    + "but it was empty", archive));
+        }
+        deleteUnextractedFiles(normalizedTarget, extracted);
+    }
+
+    /** Resolves the path of an entry, without its root directory, against {@code target}. */
+    private static Path resolve(Path target, String[] segments, File archive, TarArchiveEntry entry) {
+        Path destination = target.resolve(String.join("/", Arrays.copyOfRange(segments, 1, segments.length)))
+                .normalize();
+        if (!destination.startsWith(target) || destination.equals(target)) {
+            throw new GradleException(String.format(
+                    "Entry %s in tar '%s' is outside of the archive root", entry.getName(), archive));
+        }
+        return destination;
+    }
+
+    private static Path resolveHardLink(Path target, String rootDirectory, File archive, TarArchiveEntry entry) {
+        String[] segments = segments(entry.getLinkName());
+        if (segments.length < 2 || !segments[0].equals(rootDirectory)) {
+            throw new GradleException(String.format(
+                    "Hard link %s in tar '%s' points outside of the archive root: %s",
+                    entry.getName(), archive, entry.getLinkName()));
+        }
+        return resolve(target, segments, archive, entry);
+    }
+
+    private static String[] segments(String name) {
+        return Arrays.stream(name.split("/"))
+                .filter(segment -> !segment.isEmpty() && !segment.equals("."))
+                .toArray(String[]::new);
+    }
+
+    /** Checks that {@code directory}, with every symbolic link resolved, is still inside the target directory. */
+    private static void checkInsideTarget(Path realTarget, Path directory, File archive, TarArchiveEntry entry)
+            throws IOException {
+        if (!directory.toRealPath().startsWith(realTarget)) {
+            throw new GradleException(String.format(
+                    "Entry %s in tar '%s' would be extracted through a symbolic link outside of the archive root",
+                    entry.getName(), archive));
+        }
+    }
+
+    private static void extractFile(InputStream tar, TarArchiveEntry entry, Path destination) throws IOException {
+        FileTime modificationTime = FileTime.fromMillis(entry.getModTime().getTime());
+        if (Files.isRegularFile(destination)
+                && Files.size(destination) == entry.getSize()
+                && Files.getLastModifiedTime(destination).equals(modificationTime)) {
+            return;
+        }
+
+        Files.createDirectories(destination.getParent());
+        Files.copy(tar, destination, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(destination, modificationTime);
+        int mode = entry.getMode();
+        if ((mode & 0111) != 0) {
+            destination.toFile().setExecutable(true, (mode & 0011) == 0);
+        }
+    }
+
+    private static void deleteUnextractedFiles(Path target, Set<Path> extracted) throws IOException {
+        Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!extracted.contains(file)) {
+                    Files.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static InputStream open(File archive) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(archive.toPath()), BUFFER_SIZE);
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+        boolean gzipped = first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return gzipped ? new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE) : input;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.palantir.gradle.conjure.fixtures.StubDistributions;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.util.GradleVersion;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Measures the build times of {@link SyntheticBuild synthetic builds} using the plugin under test, and appends them to
+ * a JSON trend file so that changes to the plugin can be compared by their effect on build time. Each number is the
+ * median of {@code perfTest.iterations} runs in a warmed up daemon:
+ * <ul>
+ *     <li>configuration: running {@code help}, which configures every project but doesn't generate anything;</li>
+ *     <li>clean build: generating all code after {@code clean};</li>
+ *     <li>no-op rebuild: generating all code again without any changes;</li>
+ *     <li>incremental rebuild: generating all code after changing a single definition.</li>
+ * </ul>
+ *
+ * <p>Run with {@code ./gradlew :gradle-conjure:perfTest}.
+ */
+public class ConjureBuildPerformanceTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final List<SyntheticBuild> BUILDS = ImmutableList.of(
+            SyntheticBuild.conjure(1, 1),
+            SyntheticBuild.conjure(10, 5),
+            SyntheticBuild.conjure(50, 2),
+            SyntheticBuild.conjureLocal(1),
+            SyntheticBuild.conjureLocal(25));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final int iterations = Integer.getInteger("perfTest.iterations", 5);
+    private final File trendFile = new File(System.getProperty("perfTest.trendFile", "build/perf-test/trend.json"));
+
+    @Test
+    public void measureBuildTimes() throws IOException {
+        File repository = temporaryFolder.newFolder("repository");
+        StubDistributions.builder().build().writeRepository(repository);
+
+        ArrayNode scenarios = OBJECT_MAPPER.createArrayNode();
+        for (SyntheticBuild build : BUILDS) {
+            scenarios.add(measure(build, repository));
+        }
+
+        ObjectNode run = OBJECT_MAPPER.createObjectNode();
+        run.put("timestamp", Instant.now().toString());
+        run.put("pluginVersion", System.getProperty("perfTest.pluginVersion", "unspecified"));
+        run.put("gradleVersion", GradleVersion.current().getVersion());
+        run.put("javaVersion", System.getProperty("java.version"));
+        run.put("iterations", iterations);
+        run.set("scenarios", scenarios);
+        appendToTrendFile(run);
+    }
+
+    private ObjectNode measure(SyntheticBuild build, File repository) throws IOException {
+        File projectDir = temporaryFolder.newFolder(build.getName());
+        build.writeTo(projectDir, repository);
+        String generate = build.getGenerateTask();
+
+        // Warm up the daemon and extract the stub distributions
+        run(projectDir, "help");
+        run(projectDir, generate);
+
+        List<Long> configuration = new ArrayList<>();
+        List<Long> cleanBuild = new ArrayList<>();
+        List<Long> noOpRebuild = new ArrayList<>();
+        List<Long> incrementalRebuild = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            configuration.add(run(projectDir, "help"));
+
+            run(projectDir, "clean");
+            cleanBuild.add(run(projectDir, generate));
+
+            noOpRebuild.add(run(projectDir, generate));
+
+            build.editDefinition(projectDir, repository);
+            incrementalRebuild.add(run(projectDir, generate));
+        }
+
+        ObjectNode scenario = OBJECT_MAPPER.createObjectNode();
+        scenario.put("name", build.getName());
+        scenario.put("plugin", build.getKind() == SyntheticBuild.Kind.CONJURE ? "com.palantir.conjure"
+                : "com.palantir.conjure-local");
+        scenario.put("apiProjects", build.getApiProjects());
+        scenario.put("yamlFiles", build.getYamlFiles());
+        scenario.put("irDependencies", build.getIrDependencies());
+        scenario.put("configurationMillis", median(configuration));
+        scenario.put("cleanBuildMillis", median(cleanBuild));
+        scenario.put("noOpRebuildMillis", median(noOpRebuild));
+        scenario.put("incrementalRebuildMillis", median(incrementalRebuild));
+        return scenario;
+    }
+
+    /** Runs the build with the given arguments, returning how long it took in milliseconds. */
+    private static long run(File projectDir, String... arguments) {
+        long start = System.nanoTime();
+        GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments(ImmutableList.<String>builder().add(arguments).add("--offline").build())
+                .build();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private void appendToTrendFile(ObjectNode run) throws IOException {
+        ArrayNode runs = trendFile.isFile()
+                ? (ArrayNode) OBJECT_MAPPER.readTree(trendFile)
+                : OBJECT_MAPPER.createArrayNode();
+        runs.add(run);
+        File parent = trendFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        OBJECT_MAPPER.writeValue(trendFile, runs);
+        System.out.println("Build times written to " + trendFile.getAbsolutePath() + ":\n" + run);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.palantir.gradle.conjure.fixtures.StubDistributions;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A generated multi-project build resolving its generators from {@link StubDistributions}. With
+ * {@link Kind#CONJURE} it has {@code apiProjects} API projects, each with {@code yamlFiles} definitions and Java,
+ * TypeScript and Python subprojects. With {@link Kind#CONJURE_LOCAL} it generates TypeScript and Python from
+ * {@code irDependencies} remote IR files.
+ */
+final class SyntheticBuild {
+    enum Kind { CONJURE, CONJURE_LOCAL }
+
+    private final Kind kind;
+    private final int apiProjects;
+    private final int yamlFiles;
+    private final int irDependencies;
+    private int edits;
+
+    private SyntheticBuild(Kind kind, int apiProjects, int yamlFiles, int irDependencies) {
+        this.kind = kind;
+        this.apiProjects = apiProjects;
+        this.yamlFiles = yamlFiles;
+        this.irDependencies = irDependencies;
+    }
+
+    static SyntheticBuild conjure(int apiProjects, int yamlFiles) {
+        return new SyntheticBuild(Kind.CONJURE, apiProjects, yamlFiles, 0);
+    }
+
+    static SyntheticBuild conjureLocal(int irDependencies) {
+        return new SyntheticBuild(Kind.CONJURE_LOCAL, 0, 0, irDependencies);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    int getApiProjects() {
+        return apiProjects;
+    }
+
+    int getYamlFiles() {
+        return yamlFiles;
+    }
+
+    int getIrDependencies() {
+        return irDependencies;
+    }
+
+    /** The task which generates all code in this build. */
+    String getGenerateTask() {
+        return kind == Kind.CONJURE ? "compileConjure" : "generateConjure";
+    }
+
+    String getName() {
+        return kind == Kind.CONJURE
+                ? String.format("conjure-%dx%d", apiProjects, yamlFiles)
+                : String.format("conjure-local-%d", irDependencies);
+    }
+
+    void writeTo(File projectDir, File repository) throws IOException {
+        Path root = projectDir.toPath();
+        List<String> projects = new ArrayList<>();
+        StringBuilder buildFile = new StringBuilder(String.join("\n",
+                "allprojects {",
+                "    group 'com.palantir.conjure.perf'",
+                "    version '1.0.0'",
+                "    repositories {",
+                "        maven { url '" + repository.toURI() + "' }",
+                "    }",
+                "    configurations.all {",
+                "        resolutionStrategy.eachDependency { details ->",
+                "            if (details.requested.group.startsWith('com.palantir.conjure')) {",
+                "                details.useVersion '" + StubDistributions.VERSION + "'",
+                "            }",
+                "        }",
+                "    }",
+                "}",
+                ""));
+
+        if (kind == Kind.CONJURE) {
+            for (int api = 0; api < apiProjects; api++) {
+                String name = "api" + api;
+                projects.add(name);
+                for (String suffix : new String[] {"-objects", "-jersey", "-retrofit", "-typescript", "-python"}) {
+                    projects.add(name + ":" + name + suffix);
+                }
+                write(root.resolve(name).resolve("build.gradle"), "apply plugin: 'com.palantir.conjure'\n");
+                for (int file = 0; file < yamlFiles; file++) {
+                    write(definitionFile(root, api, file), definition(api, file));
+                }
+            }
+        } else {
+            projects.add("typescript");
+            projects.add("python");
+            buildFile.append("apply plugin: 'com.palantir.conjure-local'\n").append("dependencies {\n");
+            for (int ir = 0; ir < irDependencies; ir++) {
+                StubDistributions.publishIr(repository, "com.palantir.perf", "api" + ir, "1.0.0", "");
+                buildFile.append("    conjure 'com.palantir.perf:api").append(ir).append(":1.0.0'\n");
+            }
+            buildFile.append("}\n");
+        }
+
+        StringBuilder settingsFile = new StringBuilder("rootProject.name = 'synthetic'\n");
+        projects.forEach(project -> settingsFile.append("include '").append(project).append("'\n"));
+        write(root.resolve("settings.gradle"), settingsFile.toString());
+        write(root.resolve("build.gradle"), buildFile.toString());
+        write(root.resolve("gradle.properties"), "org.gradle.caching=false\n");
+    }
+
+    /** Changes a single definition, as a developer editing one API or bumping one remote IR would. */
+    void editDefinition(File projectDir, File repository) throws IOException {
+        if (kind == Kind.CONJURE) {
+            Files.write(
+                    definitionFile(projectDir.toPath(), 0, 0),
+                    String.format("      Edit%d:%n        alias: string%n", edits).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        } else {
+            StubDistributions.publishIr(repository, "com.palantir.perf", "api0", "1.0.0", "edit" + edits);
+        }
+        edits++;
+    }
+
+    private static Path definitionFile(Path root, int api, int file) {
+        return root.resolve(String.format("api%d/src/main/conjure/api%d-%d.yml", api, api, file));
+    }
+
+    private static String definition(int api, int file) {
+        return String.join("\n",
+                "types:",
+                "  definitions:",
+                String.format("    default-package: com.palantir.perf.api%d.file%d", api, file),
+                "    objects:",
+                String.format("      Object%d:", file),
+                "        fields:",
+                "          name: string",
+                "          count: integer",
+                "");
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -16,8 +16,11 @@
 
 package com.palantir.gradle.conjure
 
+import com.palantir.gradle.conjure.fixtures.StubDistributions
+import java.time.Duration
 import nebula.test.IntegrationSpec
 import nebula.test.functional.ExecutionResult
+import spock.lang.Unroll
 
 class ConjureLocalPluginTest extends IntegrationSpec {
     def standardBuildFile = '''
@@ -72,6 +75,93 @@ class ConjureLocalPluginTest extends IntegrationSpec {
         fileExists('python/python/conjure-api/conjure_spec/__init__.py')
     }
 
+    @Unroll
+    def "generatePython runs at most #cap generators at a time"() {
+        File repository = directory('repository')
+        File log = new File(projectDir, 'generator-invocations.log')
+        StubDistributions.builder()
+                .generatorDelay(Duration.ofMillis(500))
+                .invocationLog(log)
+                .build()
+                .writeRepository(repository)
+        (0..<4).each { StubDistributions.publishIr(repository, 'com.palantir.test', "api${it}", '1.0.0', '') }
+        buildFile.text = """
+            allprojects {
+                repositories {
+                    maven { url '${repository.toURI()}' }
+                }
+                configurations.all {
+                    resolutionStrategy.eachDependency { details ->
+                        if (details.requested.group.startsWith('com.palantir.conjure')) {
+                            details.useVersion '${StubDistributions.VERSION}'
+                        }
+                    }
+                }
+            }
+
+            apply plugin: 'com.palantir.conjure-local'
+
+            dependencies {
+                conjure 'com.palantir.test:api0:1.0.0'
+                conjure 'com.palantir.test:api1:1.0.0'
+                conjure 'com.palantir.test:api2:1.0.0'
+                conjure 'com.palantir.test:api3:1.0.0'
+            }
+
+            tasks.withType(com.palantir.gradle.conjure.ConjureGeneratorTask) {
+                maxParallelism = ${cap}
+            }
+        """.stripIndent()
+        addSubproject("python")
+
+        when:
+        ExecutionResult result = runTasksSuccessfully("--max-workers=4", "generatePython")
+
+        then:
+        result.wasExecuted(":generatePython")
+        log.readLines().count { it.startsWith('start generate ') } == 4
+        maxConcurrentGenerations(log) == cap
+
+        where:
+        cap << [1, 2]
+    }
+
+    def "generatePython only regenerates changed dependencies"() {
+        addSubproject("python")
+        runTasksSuccessfully("generatePython")
+        buildFile.text = buildFile.text.replace('conjure-api:4.1.1', 'conjure-api:4.0.0')
+
+        when:
+        ExecutionResult result = runTasksSuccessfully("generatePython")
+
+        then:
+        result.wasExecuted(":generatePython")
+        result.standardOutput.contains("Regenerating 1 changed and removing 1 deleted source files")
+        fileExists('python/python/conjure-api/conjure_spec/__init__.py')
+    }
+
+    def "generatePython skips dependencies whose generated sources are up to date"() {
+        addSubproject("python")
+        runTasksSuccessfully("generatePython")
+
+        when:
+        ExecutionResult rerun = runTasksSuccessfully("generatePython", "--rerun-tasks")
+
+        then:
+        rerun.wasExecuted(":generatePython")
+        rerun.standardOutput.contains("as its generated sources are up to date")
+        fileExists('build/conjure-index/generatePython.json')
+
+        when:
+        file('python/python/conjure-api/conjure_spec/__init__.py').delete()
+        ExecutionResult modified = runTasksSuccessfully("generatePython")
+
+        then:
+        modified.wasExecuted(":generatePython")
+        !modified.standardOutput.contains("as its generated sources are up to date")
+        fileExists('python/python/conjure-api/conjure_spec/__init__.py')
+    }
+
     def "custom generator throws if generator missing"() {
         addSubproject("postman")
 
@@ -96,4 +186,15 @@ class ConjureLocalPluginTest extends IntegrationSpec {
         fileExists('postman/postman/conjure-api/conjure-api.postman_collection.json')
         file('postman/postman/conjure-api/conjure-api.postman_collection.json').text.contains('"version" : "4.1.1"')
     }
+
+    /** The most generator calls which were running at the same time according to a stub invocation log. */
+    private static int maxConcurrentGenerations(File log) {
+        int running = 0
+        int max = 0
+        log.readLines().findAll { it.contains(' generate ') }.each { line ->
+            running += line.startsWith('start ') ? 1 : -1
+            max = Math.max(max, running)
+        }
+        return max
+    }
 }
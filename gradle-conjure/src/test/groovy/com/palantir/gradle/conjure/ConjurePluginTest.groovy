@@ -16,6 +16,9 @@
 
 package com.palantir.gradle.conjure
 
+import groovy.json.JsonSlurper
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
 import nebula.test.IntegrationSpec
 import nebula.test.functional.ExecutionResult
 import spock.lang.IgnoreIf
@@ -169,6 +172,167 @@ class ConjurePluginTest extends IntegrationSpec {
         result2.wasUpToDate(":api:compileConjureObjects")
     }
 
+    def 'compileConjure loads outputs from the build cache'() {
+        file('settings.gradle') << '''
+        buildCache {
+            local(DirectoryBuildCache) {
+                directory = new File(rootDir, 'build-cache')
+            }
+        }
+        '''.stripIndent()
+
+        when:
+        runTasksSuccessfully('--build-cache', 'compileConjure')
+        runTasksSuccessfully('clean')
+        ExecutionResult result = runTasksSuccessfully('--build-cache', 'compileConjure')
+
+        then:
+        result.standardOutput.contains(':api:compileIr FROM-CACHE')
+        result.standardOutput.contains(':api:compileConjureObjects FROM-CACHE')
+        result.standardOutput.contains(':api:compileConjureJersey FROM-CACHE')
+        result.standardOutput.contains(':api:compileConjureRetrofit FROM-CACHE')
+        result.standardOutput.contains(':api:compileConjureTypeScript FROM-CACHE')
+        fileExists('api/api-objects/src/generated/java/test/test/api/StringExample.java')
+    }
+
+    def 'compileConjure generates code using the generator daemon'() {
+        when:
+        ExecutionResult result = runTasksSuccessfully('-Pcom.palantir.conjure.generator-daemon=true', 'compileConjure')
+
+        then:
+        result.wasExecuted(':api:compileIr')
+        result.wasExecuted(':api:compileConjureObjects')
+        result.wasExecuted(':api:compileConjureTypeScript')
+
+        result.standardOutput.contains('Running compileConjureObjects generator (1 files): calling')
+        result.standardOutput.contains('in a generator daemon')
+        !result.standardOutput.contains('Running compileConjureObjects generator (1 files): forking')
+
+        fileExists('api/api-objects/src/generated/java/test/test/api/StringExample.java')
+        fileExists('api/api-typescript/src/api/index.ts')
+        file('api/build/conjure-ir/api.conjure.json').text.contains('TestServiceFoo')
+    }
+
+    def 'compileConjure generates every language within the generator limit'() {
+        when:
+        ExecutionResult result = runTasksSuccessfully(
+                '-Pcom.palantir.conjure.max-concurrent-generators=1', 'compileConjure')
+
+        then:
+        result.wasExecuted(':api:compileConjureObjects')
+        result.wasExecuted(':api:compileConjureJersey')
+        result.wasExecuted(':api:compileConjureRetrofit')
+        result.wasExecuted(':api:compileConjureTypeScript')
+
+        fileExists('api/api-objects/src/generated/java/test/test/api/StringExample.java')
+        fileExists('api/api-typescript/src/api/index.ts')
+    }
+
+    def 'invalid generator limit fails the build'() {
+        when:
+        ExecutionResult result = runTasksWithFailure('-Pcom.palantir.conjure.max-concurrent-generators=0', 'compileIr')
+
+        then:
+        result.standardError.contains('com.palantir.conjure.max-concurrent-generators must be a positive integer')
+    }
+
+    def 'compileConjure writes metrics reports when enabled'() {
+        when:
+        runTasksSuccessfully('-Pcom.palantir.conjure.metrics=true', 'compileConjure')
+
+        then:
+        def taskReport = new JsonSlurper().parse(file('api/build/reports/conjure/compileConjureObjects/task.json'))
+        taskReport.task == ':api:compileConjureObjects'
+        taskReport.outcome == 'EXECUTED'
+        taskReport.filesWritten > 0
+        taskReport.bytesWritten > 0
+        taskReport.processes == 1
+
+        def processReports = directory('api/build/reports/conjure/compileIr').listFiles()
+                .findAll { it.name.startsWith('process-') }
+        processReports.size() == 1
+        def processReport = new JsonSlurper().parse(processReports[0])
+        processReport.task == ':api:compileIr'
+        processReport.commandLine[1] == 'compile'
+        processReport.wallTimeMillis >= 0
+        processReport.succeeded
+    }
+
+    def 'metrics of all conjure tasks are summarized in the root project'() {
+        when:
+        runTasksSuccessfully('-Pcom.palantir.conjure.metrics=true', 'compileConjure')
+        runTasksSuccessfully('-Pcom.palantir.conjure.metrics=true', 'compileConjure')
+
+        then:
+        def report = new JsonSlurper().parse(file('build/reports/conjure/build.json'))
+        report.criticalPath.contains(':api:compileIr')
+        report.criticalPathMillis <= report.wallTimeMillis
+        report.generation.outcomes['UP-TO-DATE'] > 0
+        report.generation.hitRate == 1
+    }
+
+    def 'generators called in a generator daemon are attributed to their IR files'() {
+        when:
+        runTasksSuccessfully(
+                '-Pcom.palantir.conjure.metrics=true', '-Pcom.palantir.conjure.generator-daemon=true', 'compileConjure')
+
+        then:
+        def processReport = new JsonSlurper().parse(directory('api/build/reports/conjure/compileConjureObjects')
+                .listFiles().find { it.name.startsWith('process-') })
+        processReport.inProcess
+        processReport.commandLine[1] == 'generate'
+
+        def report = new JsonSlurper().parse(file('build/reports/conjure/build.json'))
+        report.slowestIrFiles['conjure-java'].any { it.contains('api.conjure.json') }
+    }
+
+    def 'single pass conjure-java generation routes sources to each subproject'() {
+        when:
+        ExecutionResult result = runTasksSuccessfully('-Pcom.palantir.conjure.java.single-pass=true', 'check')
+
+        then:
+        result.wasExecuted(':api:compileConjureJava')
+        result.wasExecuted(':api:compileConjureObjects')
+        result.wasExecuted(':api:compileConjureJersey')
+        result.wasExecuted(':api:compileConjureRetrofit')
+        result.wasExecuted(':api:api-jersey:compileJava')
+        result.wasExecuted(':api:api-retrofit:compileJava')
+
+        fileExists('api/api-objects/src/generated/java/test/test/api/StringExample.java')
+        !fileExists('api/api-objects/src/generated/java/test/test/api/TestServiceFoo.java')
+        !fileExists('api/api-objects/src/generated/java/test/test/api/TestServiceFooRetrofit.java')
+        fileExists('api/api-jersey/src/generated/java/test/test/api/TestServiceFoo.java')
+        !fileExists('api/api-jersey/src/generated/java/test/test/api/StringExample.java')
+        fileExists('api/api-retrofit/src/generated/java/test/test/api/TestServiceFooRetrofit.java')
+        !fileExists('api/api-retrofit/src/generated/java/test/test/api/StringExample.java')
+    }
+
+    def 'extracted distributions are reused after clean'() {
+        when:
+        runTasksSuccessfully(':api:compileIr')
+        runTasksSuccessfully('clean')
+        ExecutionResult result = runTasksSuccessfully(':api:compileIr')
+
+        then:
+        result.wasExecuted(':api:extractConjure')
+        result.standardOutput.contains('Using previously extracted')
+        fileExists('api/build/conjureCompiler/bin/conjure')
+    }
+
+    def 'extraction replaces a directory left behind by an older plugin with a link'() {
+        given:
+        createFile('api/build/conjureCompiler/lib/stale.jar') << 'stale'
+
+        when:
+        ExecutionResult result = runTasksSuccessfully(':api:compileIr')
+
+        then:
+        result.wasExecuted(':api:extractConjure')
+        Files.isSymbolicLink(file('api/build/conjureCompiler').toPath())
+        fileExists('api/build/conjureCompiler/bin/conjure')
+        !fileExists('api/build/conjureCompiler/lib/stale.jar')
+    }
+
     def 'check code compiles when run in parallel with multiple build targets'() {
         when:
         ExecutionResult result = runTasksSuccessfully('--parallel', 'check', 'tasks')
@@ -287,6 +451,70 @@ class ConjurePluginTest extends IntegrationSpec {
         !fileExists('api/build/conjure/todelete.yml')
     }
 
+    def 'copyConjureSourcesIntoBuild only rewrites changed conjure files'() {
+        when:
+        createFile('api/src/main/conjure/unchanged.yml') << '''
+        types:
+          definitions:
+            default-package: test.b.api
+            objects:
+              UnchangedExample:
+                alias: string
+        '''.stripIndent()
+        runTasksSuccessfully("copyConjureSourcesIntoBuild")
+        def stagedFileKey = {
+            Files.readAttributes(file('api/build/conjure/unchanged.yml').toPath(), BasicFileAttributes).fileKey()
+        }
+        def unchangedKey = stagedFileKey()
+        file('api/src/main/conjure/api.yml') << '# changed\n'
+        runTasksSuccessfully("copyConjureSourcesIntoBuild")
+
+        then:
+        stagedFileKey() == unchangedKey
+        file('api/build/conjure/api.yml').text.contains('# changed')
+    }
+
+    def 'compileIr is up to date when only line endings change'() {
+        when:
+        runTasksSuccessfully(':api:compileIr')
+        file('api/src/main/conjure/api.yml').text = file('api/src/main/conjure/api.yml').text.replace('\n', '\r\n')
+        ExecutionResult result = runTasksSuccessfully(':api:compileIr')
+
+        then:
+        result.wasExecuted(':api:copyConjureSourcesIntoBuild')
+        result.wasUpToDate(':api:compileIr')
+    }
+
+    def 'generators are up to date when a comment only edit leaves the IR unchanged'() {
+        when:
+        runTasksSuccessfully('compileConjure')
+        file('api/src/main/conjure/api.yml') << '# only a comment\n'
+        ExecutionResult result = runTasksSuccessfully('compileConjure')
+
+        then:
+        result.wasExecuted(':api:compileIr')
+        result.wasUpToDate(':api:compileConjureObjects')
+        result.wasUpToDate(':api:compileConjureJersey')
+        result.wasUpToDate(':api:compileConjureTypeScript')
+    }
+
+    def 'compileConjureTypeScript only rewrites changed files'() {
+        when:
+        runTasksSuccessfully(':api:compileConjureTypeScript')
+        createFile('api/api-typescript/src/node_modules/installed.js') << 'installed'
+        long tsconfigModified = file('api/api-typescript/src/tsconfig.json').lastModified()
+        file('api/src/main/conjure/api.yml').text = file('api/src/main/conjure/api.yml').text.replace(
+                'StringExample:', 'OtherExample:\n        fields:\n          other: string\n      StringExample:')
+        ExecutionResult result = runTasksSuccessfully(':api:compileConjureTypeScript')
+
+        then:
+        result.wasExecuted(':api:compileConjureTypeScript')
+        result.wasExecuted(':api:syncConjureTypeScript')
+        file('api/api-typescript/src/api/index.ts').text.toLowerCase().contains('otherexample')
+        file('api/api-typescript/src/node_modules/installed.js').text == 'installed'
+        file('api/api-typescript/src/tsconfig.json').lastModified() == tsconfigModified
+    }
+
     def 'check publication'() {
         file('build.gradle') << '''
         buildscript {
@@ -493,6 +721,21 @@ class ConjurePluginTest extends IntegrationSpec {
         result.standardOutput.contains("--nodeCompatibleModules --unknownOps=Unknown");
     }
 
+    def 'conjure tasks are not configured unless they run'() {
+        file('api/build.gradle') << '''
+        tasks.configureEach { task -> println "Configured ${task.path}" }
+        '''.stripIndent()
+
+        when:
+        ExecutionResult result = runTasksSuccessfully(':api:copyConjureSourcesIntoBuild')
+
+        then:
+        result.standardOutput.contains('Configured :api:copyConjureSourcesIntoBuild')
+        !result.standardOutput.contains('Configured :api:compileIr')
+        !result.standardOutput.contains('Configured :api:compileConjureObjects')
+        !result.standardOutput.contains('Configured :api:compileConjureTypeScript')
+    }
+
     def 'works with afterEvaluate'() {
         file('build.gradle') << '''
             allprojects {
@@ -523,6 +766,7 @@ class ConjurePluginTest extends IntegrationSpec {
         result.success
 
         where:
-        version << ['4.7', '4.4', '4.3', '4.2', '4.1', '4.0', '3.5']
+        // 4.9 is the oldest supported version, as the plugins use the lazy task API
+        version << ['4.10.2', '4.9']
     }
 }
@@ -126,10 +126,23 @@ class ConjurePublishTypeScriptTest extends IntegrationSpec {
         ExecutionResult second = runTasksSuccessfully('-i', 'installTypeScriptDependencies')
 
         then:
-        second.wasExecuted(':api:compileConjureTypeScript') // this should really be up-to-date, but something touches the output package.json which makes gradle re-run this
+        second.wasUpToDate(':api:compileConjureTypeScript')
+        second.wasUpToDate(':api:syncConjureTypeScript')
         second.wasUpToDate(':api:installTypeScriptDependencies')
     }
 
+    def 'installTypeScriptDependencies is up-to-date when only the version changes'() {
+        when:
+        runTasksSuccessfully('installTypeScriptDependencies')
+        file('build.gradle').text = file('build.gradle').text.replace("version '0.1.0'", "version '0.2.0'")
+        ExecutionResult result = runTasksSuccessfully('installTypeScriptDependencies')
+
+        then:
+        result.wasExecuted(':api:compileConjureTypeScript')
+        file('api/api-typescript/src/package.json').text.contains('"version": "0.2.0"')
+        result.wasUpToDate(':api:installTypeScriptDependencies')
+    }
+
     def 'compiles TypeScript'() {
         when:
         ExecutionResult result = runTasksSuccessfully(':api:compileTypeScript')
@@ -140,6 +153,46 @@ class ConjurePublishTypeScriptTest extends IntegrationSpec {
         file('api/api-typescript/src/index.js').text.contains('export * from "./api";')
     }
 
+    def 'compileTypeScript is up-to-date when only the version changes'() {
+        when:
+        runTasksSuccessfully('compileTypeScript')
+        file('build.gradle').text = file('build.gradle').text.replace("version '0.1.0'", "version '0.2.0'")
+        ExecutionResult result = runTasksSuccessfully('compileTypeScript')
+
+        then:
+        result.wasExecuted(':api:compileConjureTypeScript')
+        result.wasUpToDate(':api:compileTypeScript')
+        file('api/api-typescript/src/index.js').text.contains('export * from "./api";')
+    }
+
+    def 'compileTypeScript emits compiled files again after they were deleted'() {
+        when:
+        runTasksSuccessfully('compileTypeScript')
+        file('api/api-typescript/src/index.js').delete()
+        ExecutionResult result = runTasksSuccessfully('compileTypeScript')
+
+        then:
+        result.wasExecuted(':api:compileTypeScript')
+        file('api/api-typescript/src/index.js').text.contains('export * from "./api";')
+    }
+
+    def 'compileTypeScript rejects an outDir'() {
+        file('api/build.gradle') << '''
+        syncConjureTypeScript.doLast {
+            def tsConfigFile = file('api-typescript/src/tsconfig.json')
+            def tsConfig = new groovy.json.JsonSlurper().parse(tsConfigFile)
+            tsConfig.compilerOptions.outDir = 'dist'
+            tsConfigFile.text = groovy.json.JsonOutput.toJson(tsConfig)
+        }
+        '''.stripIndent()
+
+        when:
+        ExecutionResult result = runTasksWithFailure(':api:compileTypeScript')
+
+        then:
+        result.standardError.contains("sets compilerOptions.outDir to 'dist'")
+    }
+
     def 'compileConjureTypeScript is up-to-date when run for the second time'() {
         when:
         ExecutionResult first = runTasksSuccessfully('compileConjureTypeScript')
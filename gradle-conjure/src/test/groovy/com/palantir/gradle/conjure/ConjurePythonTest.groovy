@@ -0,0 +1,118 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure
+
+import nebula.test.IntegrationSpec
+import nebula.test.functional.ExecutionResult
+
+class ConjurePythonTest extends IntegrationSpec {
+
+    def setup() {
+        createFile('settings.gradle') << '''
+        include 'api'
+        include 'api:api-python'
+        '''.stripIndent()
+
+        createFile('build.gradle') << '''
+        buildscript {
+            repositories {
+                mavenCentral()
+                maven {
+                    url 'https://dl.bintray.com/palantir/releases/'
+                }
+            }
+
+            dependencies {
+                classpath 'com.netflix.nebula:nebula-dependency-recommender:5.2.0'
+            }
+        }
+        allprojects {
+            version '0.1.0'
+            group 'com.palantir.conjure.test'
+
+            repositories {
+                mavenCentral()
+                maven {
+                    url 'https://dl.bintray.com/palantir/releases/'
+                }
+            }
+            apply plugin: 'nebula.dependency-recommender'
+
+            dependencyRecommendations {
+                strategy OverrideTransitives
+                propertiesFile file: project.rootProject.file('versions.props')
+            }
+        }
+        '''.stripIndent()
+
+        createFile('api/build.gradle') << '''
+        apply plugin: 'com.palantir.conjure'
+        '''.stripIndent()
+
+        createFile('versions.props') << '''
+        com.palantir.conjure.python:conjure-python = 3.5.0
+        com.palantir.conjure:conjure = 4.0.0
+        '''.stripIndent()
+
+        createFile('api/src/main/conjure/api.yml') << '''
+        types:
+          definitions:
+            default-package: test.test.api
+            objects:
+              StringExample:
+                fields:
+                  string: string
+        '''.stripIndent()
+        file("gradle.properties") << "org.gradle.daemon=false"
+    }
+
+    def 'buildWheel builds a source distribution and a universal wheel'() {
+        when:
+        ExecutionResult result = runTasksSuccessfully(':api:buildWheel')
+
+        then:
+        result.wasExecuted(':api:compileConjurePython')
+        result.wasExecuted(':api:buildWheel')
+        distributions() == ['api-0.1.0-py2.py3-none-any.whl', 'api-0.1.0.tar.gz'] as Set
+    }
+
+    def 'buildWheel removes distributions of previous versions'() {
+        when:
+        runTasksSuccessfully(':api:buildWheel')
+        file('build.gradle').text = file('build.gradle').text.replace("version '0.1.0'", "version '0.2.0'")
+        ExecutionResult result = runTasksSuccessfully(':api:buildWheel')
+
+        then:
+        result.wasExecuted(':api:buildWheel')
+        distributions() == ['api-0.2.0-py2.py3-none-any.whl', 'api-0.2.0.tar.gz'] as Set
+    }
+
+    def 'buildWheel is up-to-date when run for the second time'() {
+        when:
+        runTasksSuccessfully(':api:buildWheel')
+        ExecutionResult result = runTasksSuccessfully(':api:buildWheel')
+
+        then:
+        result.wasUpToDate(':api:compileConjurePython')
+        result.wasUpToDate(':api:buildWheel')
+        distributions() == ['api-0.1.0-py2.py3-none-any.whl', 'api-0.1.0.tar.gz'] as Set
+    }
+
+    private Set<String> distributions() {
+        return directory('api/build/python/dist').list() as Set
+    }
+}
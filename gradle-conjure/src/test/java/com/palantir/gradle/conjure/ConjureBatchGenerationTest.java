@@ -0,0 +1,85 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConjureBatchGenerationTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSupported() throws IOException {
+        File distribution = distribution("[ \"$1\" = generate-batch ] || exit 1");
+        assertThat(ConjureBatchGeneration.isSupported(new File(distribution, "bin/generator"), distribution, "test"))
+                .isTrue();
+    }
+
+    @Test
+    public void testUnsupported() throws IOException {
+        File distribution = distribution("echo \"Unknown command $1\" >&2\nexit 1");
+        assertThat(ConjureBatchGeneration.isSupported(new File(distribution, "bin/generator"), distribution, "test"))
+                .isFalse();
+    }
+
+    @Test
+    public void testProbeTimesOutWhileOutputIsOpen() throws IOException {
+        // The background process keeps the output open after the probe is destroyed
+        File distribution = distribution("sleep 30 &\nsleep 30");
+        long start = System.nanoTime();
+        assertThat(ConjureBatchGeneration.probe(new File(distribution, "bin/generator"), 1)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+    }
+
+    @Test
+    public void testManifest() throws IOException {
+        File executable = new File("/generator/bin/generator");
+        File manifest = new File(temporaryFolder.getRoot(), "tmp/generate-batch.json");
+
+        assertThat(ConjureBatchGeneration.batchCommandLine(executable, manifest, ImmutableList.of(
+                ImmutableList.of(executable.getPath(), "generate", "/ir/foo-1.0.0.json", "/out/foo", "--rawSource"),
+                ImmutableList.of(executable.getPath(), "generate", "/ir/bar-2.0.0.json", "/out/bar"))))
+                .containsExactly(executable.getAbsolutePath(), "generate-batch", manifest.getAbsolutePath());
+
+        JsonNode entries = ObjectMappers.OBJECT_MAPPER.readTree(manifest);
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).get("input").asText()).isEqualTo(new File("/ir/foo-1.0.0.json").getAbsolutePath());
+        assertThat(entries.get(0).get("output").asText()).isEqualTo(new File("/out/foo").getAbsolutePath());
+        assertThat(entries.get(0).get("options").get(0).asText()).isEqualTo("--rawSource");
+        assertThat(entries.get(1).get("options")).isEmpty();
+    }
+
+    private File distribution(String script) throws IOException {
+        File distribution = temporaryFolder.newFolder();
+        File executable = new File(distribution, "bin/generator");
+        executable.getParentFile().mkdirs();
+        Files.write(executable.toPath(), ("#!/bin/sh\n" + script + "\n").getBytes(StandardCharsets.UTF_8));
+        assertThat(executable.setExecutable(true)).isTrue();
+        return distribution;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.gradle.api.GradleException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConjureGeneratorMainWorkerTest {
+    private static final List<List<String>> CALLS = new ArrayList<>();
+
+    @Before
+    public void before() {
+        CALLS.clear();
+    }
+
+    @Test
+    public void testCallsMainForEveryArgList() {
+        run(RecordingMain.class, ImmutableList.of("generate", "a"), ImmutableList.of("generate", "b"));
+        assertThat(CALLS).containsExactly(ImmutableList.of("generate", "a"), ImmutableList.of("generate", "b"));
+    }
+
+    @Test
+    public void testMainThrowing() {
+        assertThatThrownBy(() -> run(ThrowingMain.class, ImmutableList.of("generate", "a")))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("failed with args [generate, a]")
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testMainExitingWithFailure() {
+        assertThatThrownBy(() -> run(ExitingMain.class, ImmutableList.of("1"), ImmutableList.of("0")))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("exited with status 1 for args [1]");
+        assertThat(CALLS).containsExactly(ImmutableList.of("1"));
+        assertThat(System.getSecurityManager()).isNull();
+    }
+
+    @Test
+    public void testMainExitingWithSuccess() {
+        run(ExitingMain.class, ImmutableList.of("0"), ImmutableList.of("0"));
+        assertThat(CALLS).hasSize(2);
+    }
+
+    @SafeVarargs
+    private static void run(Class<?> mainClass, List<String>... argLists) {
+        List<List<String>> commandLines = Arrays.stream(argLists)
+                .map(args -> ImmutableList.<String>builder().add("generator").addAll(args).build())
+                .collect(Collectors.toList());
+        new ConjureGeneratorMainWorker(mainClass.getName(), commandLines, new ProcessMetricsReporter(":test", null))
+                .run();
+    }
+
+    public static final class RecordingMain {
+        public static void main(String[] args) {
+            CALLS.add(Arrays.asList(args));
+        }
+    }
+
+    public static final class ThrowingMain {
+        public static void main(String[] args) {
+            throw new IllegalStateException("generation failed");
+        }
+    }
+
+    public static final class ExitingMain {
+        public static void main(String[] args) {
+            CALLS.add(Arrays.asList(args));
+            System.exit(Integer.parseInt(args[0]));
+        }
+    }
+}
@@ -68,4 +68,20 @@ public class RenderGeneratorOptionsTest {
         assertThat(RenderGeneratorOptions.toArgs(generatorOptions, ImmutableMap.of("baz", () -> "yep")))
                 .containsExactly("--foo=bar", "--baz=yep");
     }
+
+    @Test
+    public void testCanonicalArgsIgnoreDeclarationOrderAndValueTypes() {
+        generatorOptions.setProperty("foo", "bar");
+        generatorOptions.setProperty("baz", true);
+        generatorOptions.setProperty("count", 1);
+
+        GeneratorOptions reordered = new GeneratorOptions();
+        reordered.setProperty("count", "1");
+        reordered.setProperty("baz", true);
+        reordered.setProperty("foo", new StringBuilder("bar"));
+
+        assertThat(RenderGeneratorOptions.toCanonicalArgs(generatorOptions))
+                .containsExactly("--baz", "--count=1", "--foo=bar")
+                .isEqualTo(RenderGeneratorOptions.toCanonicalArgs(reordered));
+    }
 }
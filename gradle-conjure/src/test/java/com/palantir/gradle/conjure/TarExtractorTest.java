@@ -0,0 +1,168 @@
+/*
+ * (c) Copyright 2019 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.gradle.api.GradleException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TarExtractorTest {
+    private static final Date MODIFIED = new Date(1546300800000L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path target;
+
+    @Before
+    public void before() throws IOException {
+        target = folder.newFolder("target").toPath();
+    }
+
+    @Test
+    public void testStripsRootDirectory() throws IOException {
+        File archive = archive("conjure-1.0.0/bin/conjure", "conjure-1.0.0/lib/conjure.jar");
+
+        TarExtractor.extract(archive, target);
+
+        assertThat(target.resolve("bin/conjure")).hasContent("conjure-1.0.0/bin/conjure");
+        assertThat(target.resolve("bin/conjure").toFile().canExecute()).isTrue();
+        assertThat(target.resolve("lib/conjure.jar")).hasContent("conjure-1.0.0/lib/conjure.jar");
+    }
+
+    @Test
+    public void testRejectsMultipleRootDirectories() throws IOException {
+        File archive = archive("conjure-1.0.0/bin/conjure", "other/bin/conjure");
+
+        assertThatThrownBy(() -> TarExtractor.extract(archive, target))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Expected exactly one root directory");
+    }
+
+    @Test
+    public void testSkipsUnchangedFilesAndDeletesStaleFiles() throws IOException {
+        File archive = archive("conjure-1.0.0/bin/conjure");
+        TarExtractor.extract(archive, target);
+        Path stale = Files.write(target.resolve("stale.txt"), new byte[0]);
+        // Same size and modification time, so the extractor must assume it's unchanged
+        Path executable = target.resolve("bin/conjure");
+        Files.write(executable, "conjure-1.0.0/bin/CONJURE".getBytes(StandardCharsets.UTF_8));
+        executable.toFile().setLastModified(MODIFIED.getTime());
+
+        TarExtractor.extract(archive, target);
+
+        assertThat(executable).hasContent("conjure-1.0.0/bin/CONJURE");
+        assertThat(stale).doesNotExist();
+    }
+
+    @Test
+    public void testRejectsSymbolicLinksOutsideOfRoot() throws IOException {
+        File archive = archive(link("conjure-1.0.0/lib", "../..", TarArchiveEntry.LF_SYMLINK));
+
+        assertThatThrownBy(() -> TarExtractor.extract(archive, target))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("points outside of the archive root");
+    }
+
+    @Test
+    public void testRejectsFilesExtractedThroughSymbolicLinks() throws IOException {
+        // Each link looks like it stays inside the root, but together they resolve to the target's parent
+        File archive = archive(
+                link("conjure-1.0.0/self", ".", TarArchiveEntry.LF_SYMLINK),
+                link("conjure-1.0.0/self/parent", "..", TarArchiveEntry.LF_SYMLINK),
+                file("conjure-1.0.0/parent/escaped"));
+
+        assertThatThrownBy(() -> TarExtractor.extract(archive, target))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("through a symbolic link outside of the archive root");
+        assertThat(target.resolveSibling("escaped")).doesNotExist();
+    }
+
+    @Test
+    public void testExtractsHardLinks() throws IOException {
+        File archive = archive(
+                file("conjure-1.0.0/bin/conjure"),
+                link("conjure-1.0.0/bin/conjure-link", "conjure-1.0.0/bin/conjure", TarArchiveEntry.LF_LINK));
+
+        TarExtractor.extract(archive, target);
+
+        assertThat(target.resolve("bin/conjure-link")).hasContent("conjure-1.0.0/bin/conjure");
+        assertThat(target.resolve("bin/conjure-link").toFile().canExecute()).isTrue();
+    }
+
+    @Test
+    public void testRejectsHardLinksOutsideOfRoot() throws IOException {
+        File archive = archive(link("conjure-1.0.0/bin/conjure", "/etc/passwd", TarArchiveEntry.LF_LINK));
+
+        assertThatThrownBy(() -> TarExtractor.extract(archive, target))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("points outside of the archive root");
+    }
+
+    private File archive(String... paths) throws IOException {
+        TarArchiveEntry[] entries = new TarArchiveEntry[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            entries[i] = file(paths[i]);
+        }
+        return archive(entries);
+    }
+
+    private File archive(TarArchiveEntry... entries) throws IOException {
+        File archive = folder.newFile();
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(archive.toPath()));
+                TarArchiveOutputStream tar = new TarArchiveOutputStream(output)) {
+            for (TarArchiveEntry entry : entries) {
+                tar.putArchiveEntry(entry);
+                if (entry.getSize() > 0) {
+                    tar.write(entry.getName().getBytes(StandardCharsets.UTF_8));
+                }
+                tar.closeArchiveEntry();
+            }
+        }
+        return archive;
+    }
+
+    private static TarArchiveEntry file(String path) {
+        TarArchiveEntry entry = new TarArchiveEntry(path);
+        entry.setSize(path.getBytes(StandardCharsets.UTF_8).length);
+        entry.setModTime(MODIFIED);
+        entry.setMode(0755);
+        return entry;
+    }
+
+    private static TarArchiveEntry link(String path, String linkName, byte linkFlag) {
+        TarArchiveEntry entry = new TarArchiveEntry(path, linkFlag);
+        entry.setLinkName(linkName);
+        entry.setModTime(MODIFIED);
+        return entry;
+    }
+}